@@ -0,0 +1,34 @@
+package VRP.Algorithms.BranchAndBound;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for an improvement of the branch and bound answer
+ */
+@Name("VRP.BranchAndBoundIncumbent")
+@Label("Branch and Bound Incumbent")
+@Category("VRP")
+@Description("A better answer found by the branch and bound search")
+public class BBIncumbentEvent extends Event {
+    @Label("Cost")
+    double cost;
+
+    @Label("Vehicles Used")
+    int vehicleUsed;
+
+    /**
+     * commits the event for the new answer (if JFR records it)
+     * the values are given instead of the node, another worker can release the node
+     */
+    static void commit(double cost, int vehicleUsed) {
+        BBIncumbentEvent event = new BBIncumbentEvent();
+        if (!event.isEnabled()) return;
+        event.cost = cost;
+        event.vehicleUsed = vehicleUsed;
+        event.commit();
+    }
+}
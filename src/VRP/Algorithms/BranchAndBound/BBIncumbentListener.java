@@ -0,0 +1,14 @@
+package VRP.Algorithms.BranchAndBound;
+
+/**
+ * gets the answers of an anytime branch and bound search as soon as they are found
+ * (called on the search threads, so it must be short)
+ */
+public interface BBIncumbentListener {
+    /**
+     * @param cost               cost of the new answer
+     * @param routes             routes of the answer (see BBNode.getStringPath)
+     * @param elapsedMilliSecond time since the search is started
+     */
+    void newIncumbent(double cost, String routes, long elapsedMilliSecond);
+}
@@ -0,0 +1,38 @@
+package VRP.Algorithms.BranchAndBound;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * counters of the branch and bound search
+ * search threads only increment them, BBMetricsReporter reads them
+ */
+public class BBMetrics {
+    public static final LongAdder nodesCreated = new LongAdder();        // every BBNode.create
+    public static final LongAdder nodesBranched = new LongAdder();       // nodes that their children are made
+    public static final LongAdder prunedByCost = new LongAdder();        // cost so far >= minimum cost
+    public static final LongAdder prunedByVehicles = new LongAdder();    // not enough vehicles for remained customers
+    public static final LongAdder prunedByLowerBound = new LongAdder();  // cost + lower bound >= minimum cost
+    public static final LongAdder prunedTerminal = new LongAdder();      // terminal nodes that aren't better than the answer
+    public static final LongAdder prunedByDominance = new LongAdder();   // dominated by a node in the dominance store
+    public static final LongAdder incumbentUpdates = new LongAdder();    // improvements of the answer
+    public static final LongAdder dives = new LongAdder();               // depth first dives (GlobalVars.diveFrequency)
+    public static final LongAdder diveImprovements = new LongAdder();    // dives that improved the answer
+    public static final LongAdder localSearchImprovements = new LongAdder(); // answers improved by LocalSearch
+
+    /**
+     * sets all counters to zero (for a new search)
+     */
+    public static void reset() {
+        nodesCreated.reset();
+        nodesBranched.reset();
+        prunedByCost.reset();
+        prunedByVehicles.reset();
+        prunedByLowerBound.reset();
+        prunedTerminal.reset();
+        prunedByDominance.reset();
+        incumbentUpdates.reset();
+        dives.reset();
+        diveImprovements.reset();
+        localSearchImprovements.reset();
+    }
+}
@@ -0,0 +1,98 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+
+/**
+ * a low frequency thread that prints snapshots of the search metrics
+ * and emits them as JFR events, so the search threads never print
+ */
+public class BBMetricsReporter implements Runnable {
+    private final BranchAndBound branchAndBound;
+    private final long periodMilliSecond;
+    private final long startTime;
+    private Thread thread;
+
+    /**
+     * @param branchAndBound    search that its gauges are read
+     * @param periodMilliSecond time between two snapshots
+     */
+    public BBMetricsReporter(BranchAndBound branchAndBound, long periodMilliSecond) {
+        this.branchAndBound = branchAndBound;
+        this.periodMilliSecond = periodMilliSecond;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * starts the reporter thread
+     */
+    public void start() {
+        thread = new Thread(this, "bb-metrics-reporter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * stops the reporter thread and prints the last snapshot
+     */
+    public void stop() {
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(periodMilliSecond);
+            } catch (InterruptedException e) {
+                return;
+            }
+            report();
+        }
+    }
+
+    /**
+     * prints a snapshot and commits it as a JFR event
+     */
+    public void report() {
+        long queueSize = branchAndBound.getFrontierSize();
+        double incumbent = GlobalVars.minimumValue;
+        double bestBound = Math.min(branchAndBound.getGlobalLowerBound(), incumbent);
+        double gap = getGap(incumbent, bestBound);
+
+        System.out.printf("Time: %.1fs,\t\tMinimum value: %.2f,\t\tBest bound: %.2f,\t\tGap: %.2f%%,\t\t"
+                        + "Nodes: %d,\t\tQueue: %d,\t\tPruned (cost/vehicles/bound/dominance): %d/%d/%d/%d\n",
+                (System.currentTimeMillis() - startTime) / 1000., incumbent, bestBound, gap * 100,
+                BBMetrics.nodesCreated.sum(), queueSize,
+                BBMetrics.prunedByCost.sum(), BBMetrics.prunedByVehicles.sum(),
+                BBMetrics.prunedByLowerBound.sum(), BBMetrics.prunedByDominance.sum());
+
+        BBProgressEvent event = new BBProgressEvent();
+        if (event.isEnabled()) {
+            event.nodesCreated = BBMetrics.nodesCreated.sum();
+            event.nodesBranched = BBMetrics.nodesBranched.sum();
+            event.queueSize = queueSize;
+            event.incumbent = incumbent;
+            event.bestBound = bestBound;
+            event.gap = gap;
+            event.prunedByCost = BBMetrics.prunedByCost.sum();
+            event.prunedByVehicles = BBMetrics.prunedByVehicles.sum();
+            event.prunedByLowerBound = BBMetrics.prunedByLowerBound.sum();
+            event.prunedByDominance = BBMetrics.prunedByDominance.sum();
+            event.commit();
+        }
+    }
+
+    /**
+     * @return relative gap between the answer and the best bound
+     */
+    public static double getGap(double incumbent, double bestBound) {
+        if (incumbent >= GlobalVars.INF || incumbent <= 0) return incumbent > bestBound ? 1 : 0;
+        return Math.max(0, (incumbent - bestBound) / incumbent);
+    }
+}
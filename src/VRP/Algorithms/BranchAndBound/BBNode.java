@@ -1,37 +1,88 @@
 package VRP.Algorithms.BranchAndBound;
 
-import VRP.Algorithms.Other.Greedy;
 import VRP.GlobalVars;
+import VRP.Graph.NeighbourTable;
 import VRP.Graph.Vertex;
-import VRP.Graph.VertexType;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * a node that used in branch and bound for VRP
+ * <p>
+ * nodes are reused: make them with BBNode.create and give them back with release()
  */
 public class BBNode {
-    public Vertex vertex;          // current vertex of the graph
+    public int vertexId;           // id of the current vertex of the graph (see Vertex.getId())
     public int vehicleUsed;        // number of vehicle used in this node
     public double curTimeElapsed;     // the time elapsed after moving the vehicle in current path
     public double maxTimeElapsed;     // the maximum time elapsed in all paths
     public int remainedCapacity;   // remained goods in the car
     public double cumulativePenaltyTaken; // cumulative penalty taken in all nodes
     public double cumulativeTimeTaken; // cumulative time that all vehicles spend to serve the customers
-    public boolean[] servicedNodes; // nodes that are serviced
+    public long servicedNodes;     // bit mask of serviced customers with id < 64
+    public long[] servicedNodesOverflow; // bit mask of serviced customers with id >= 64 (null for at most 64 customers)
     public int numberOfServicedCustomers; // for easily terminate the algorithm
+    public long remainedDemandCounts; // number of unserviced customers of each demand in GlobalVars.distinctDemands,
+                                      // GlobalVars.demandCountBits bits for each demand
+    public int[] remainedDemandCountsOverflow; // used instead if the counts don't fit in a long (null otherwise)
+    public int routeFirstCustomer; // first customer of the current (or the last finished) route, -1 for the root
     public BBNode parent;          // parent of the node in the BB tree
+    int checkpointIndex;           // index of the node in the tree of the last Checkpoint that has it (-1 for none)
 
-    public double startTime;          // it's the time when vehicle starts moving
     public double arrivalTime;        // the moment that the vehicle reached to the node
     public double thisVertexPenalty;  // the penalty that taken in this vertex
 
+    // evaluation of the node, calculated once in the constructor and read by the queue and the pruning
+    public double cost;               // cost of the path so far
+    public double lowerBound;         // lower bound for the cost of the remaining path
+    public int extraVehiclesNeeded;   // lower bound for number of extra vehicles needed
+    public boolean infeasible;        // true if remained customers can't be serviced with the remained vehicles
+    public double[] multipliers;      // Lagrangian multipliers of the vertices (only with GlobalVars.useLagrangianBound)
+
+    // lazy expansion (GlobalVars.useLazyExpansion): the children are made one at a time by their optimistic bound
+    // and the node waits in the queue with the bound of its next child (see startExpansion)
+    int nextCandidate;                // index of the next child in candidates, -1 if the node isn't expanding
+    private short[] candidates;       // vertex ids of the children in order of their optimistic bound
+    private double candidatesBase;    // optimistic bound of the children without their own part
+    private double optimisticPriority; // bound of the remaining children, priority of the expanding node
+
+    // children of the node plus the one that holds it (queue, incumbent, ...), node goes back to the pool at zero
+    private volatile int references;
+    private static final AtomicIntegerFieldUpdater<BBNode> REFERENCES =
+            AtomicIntegerFieldUpdater.newUpdater(BBNode.class, "references");
+
+
     /**
-     * constructor for the branch and bound node
+     * constructor, only used by BBNodePool
      */
-    public BBNode(Vertex vertex, BBNode parent) {
-        this.vertex = vertex;
+    BBNode() {
+    }
+
+    /**
+     * makes a branch and bound node from the pool of the current thread
+     *
+     * @param vertexId id of the vertex of the node
+     * @param parent   parent of the node (null for the root)
+     */
+    public static BBNode create(int vertexId, BBNode parent) {
+        BBNode node = BBNodePool.get().acquire();
+        node.init(vertexId, parent);
+        return node;
+    }
+
+    /**
+     * fills the node for a given vertex and parent
+     */
+    void init(int vertexId, BBNode parent) {
+        this.vertexId = vertexId;
         this.parent = parent;
+        this.maxTimeElapsed = 0;
+        this.references = 1;
+        this.checkpointIndex = -1;
+        this.nextCandidate = -1;
+        this.candidates = null;
+        if (parent != null) REFERENCES.incrementAndGet(parent);
 
         this.calculateVehicleUsed();
         this.calculateCurTimeElapsed();
@@ -42,17 +93,169 @@ public class BBNode {
         this.calculateCumulativePenaltyTaken();
         this.calculateCumulativeTimeTaken();
         this.calculateServicedNodes();
-        this.calculateParentStartTime();
+        this.calculateRemainedDemandCounts();
+        this.calculateRouteFirstCustomer();
+        this.evaluate();
+        BBMetrics.nodesCreated.increment();
+    }
 
-        long elapsedTime = System.currentTimeMillis() - GlobalVars.startTime;
+    /**
+     * adds a reference for another holder of the node
+     */
+    void retain() {
+        REFERENCES.incrementAndGet(this);
+    }
 
-        if (elapsedTime > GlobalVars.bbPrintTime) {
-            GlobalVars.bbPrintTime += GlobalVars.printTimeStepSize;
-            System.out.printf("Time: %.1fs,\t\t", GlobalVars.bbPrintTime / 1000.);
-            System.out.printf("Minimum value: %.2f,\t\t", GlobalVars.minimumValue);
-            System.out.print("Nodes: " + GlobalVars.numberOfBranchAndBoundNodes + "\n");
+    /**
+     * drops the holder's reference, the node and its ancestors that
+     * are not referenced anymore go back to the pool of the current thread
+     */
+    public void release() {
+        BBNodePool pool = BBNodePool.get();
+        BBNode node = this;
+        while (node != null && REFERENCES.decrementAndGet(node) == 0) {
+            BBNode parent = node.parent;
+            node.parent = null;
+            pool.free(node);
+            node = parent;
         }
+    }
 
+    /**
+     * @return true if the node can have a child on the given vertex
+     */
+    public boolean canBranchTo(int vId) {
+        if (vId == GlobalVars.depotId) return !this.isDepot();  // never go from depot to depot
+        if (this.remainedCapacity < GlobalVars.customerDemands[vId]) return false;   // check demand criterion
+        if (this.isServiced(vId)) return false; // check if this node serviced before
+
+        // vehicles are identical and routes are independent, so only the order of
+        // routes by their first customer is searched
+        return !(this.isDepot() && GlobalVars.useSymmetryBreaking && vId <= this.routeFirstCustomer);
+    }
+
+    /**
+     * starts the lazy expansion of the node: its possible children are sorted by an optimistic bound
+     * that needs no child, so the children are made one at a time and the rest are pruned at once
+     * when the bound of the next one reaches the answer
+     * <p>
+     * the bound: the cost grows by the edge to the child, the vehicles bound of this node holds for all
+     * children and the minimum edge bound of the remained customers loses at most the minimum edge of
+     * the child (the other minimum edges can only grow), so it is valid for the child and its subtree
+     *
+     * @param firstCandidate index of the first child to make (not 0 for a node read back from a file)
+     */
+    void startExpansion(int firstCandidate) {
+        double[] keys = new double[GlobalVars.numberOfNodes];
+        short[] ids = new short[GlobalVars.numberOfNodes];
+        int length = 0;
+        for (int v = 0; v < GlobalVars.numberOfNodes; v++) {
+            if (!canBranchTo(v)) continue;
+
+            // insertion sort by the key (and the id for ties, so the order can be made again)
+            double key = getCandidateKey(v);
+            int i = length++;
+            for (; i > 0 && keys[i - 1] > key; i--) {
+                keys[i] = keys[i - 1];
+                ids[i] = ids[i - 1];
+            }
+            keys[i] = key;
+            ids[i] = (short) v;
+        }
+
+        this.candidates = Arrays.copyOf(ids, length);
+        this.candidatesBase = this.cost + this.extraVehiclesNeeded * GlobalVars.vehicleFixedCost
+                + this.getLowerBoundForCumulativeTimeNeededForAllVehicles();
+        this.nextCandidate = firstCandidate;
+        this.calculateOptimisticPriority();
+    }
+
+    /**
+     * @return true if the node is in a lazy expansion
+     */
+    public boolean isExpanding() {
+        return nextCandidate >= 0;
+    }
+
+    /**
+     * @return true if the expanding node has children that are not made yet
+     */
+    public boolean hasNextCandidate() {
+        return nextCandidate >= 0 && nextCandidate < candidates.length;
+    }
+
+    /**
+     * @return vertex id of the next child, the priority of the node becomes the bound of the child after it
+     */
+    public int pollCandidate() {
+        int vId = candidates[nextCandidate++];
+        this.calculateOptimisticPriority();
+        return vId;
+    }
+
+    /**
+     * ends the lazy expansion, the priority of the node is its own priority again
+     */
+    public void finishExpansion() {
+        this.nextCandidate = -1;
+        this.candidates = null;
+    }
+
+    /**
+     * calculateOptimisticPriority
+     */
+    private void calculateOptimisticPriority() {
+        double bound = this.cost + this.lowerBound;   // the node bound is valid for all its children
+        if (nextCandidate < candidates.length)
+            bound = Math.max(bound, candidatesBase + getCandidateKey(candidates[nextCandidate]));
+        this.optimisticPriority = bound;
+    }
+
+    /**
+     * @return the part of the optimistic bound of the child on the given vertex that depends on the child
+     * (the lower bound sums the floors of the minimum edges, see getLowerBoundForCumulativeTimeNeededForAllVehicles)
+     */
+    private double getCandidateKey(int vId) {
+        double key = GlobalVars.bbDistances.get(this.vertexId, vId);
+        if (vId == GlobalVars.depotId) return key;
+        return key - (int) getMinimumEdgeWeightOfVertex(vId);
+    }
+
+    /**
+     * @return vertex of the node
+     */
+    public Vertex getVertex() {
+        return GlobalVars.bbVertices[vertexId];
+    }
+
+    /**
+     * @return true if the node is on the depot
+     */
+    public boolean isDepot() {
+        return vertexId == GlobalVars.depotId;
+    }
+
+    /**
+     * @return true if the customer is serviced in this node
+     */
+    public boolean isServiced(int customerId) {
+        if (customerId < 64) return (servicedNodes & (1L << customerId)) != 0;
+        return (servicedNodesOverflow[(customerId >>> 6) - 1] & (1L << customerId)) != 0;
+    }
+
+    /**
+     * marks the customer as serviced
+     */
+    private void setServiced(int customerId) {
+        if (customerId < 64) servicedNodes |= 1L << customerId;
+        else servicedNodesOverflow[(customerId >>> 6) - 1] |= 1L << customerId;
+    }
+
+    /**
+     * @return number of words needed for customers with id >= 64
+     */
+    private static int getServicedNodesOverflowLength() {
+        return GlobalVars.numberOfCustomers > 64 ? (GlobalVars.numberOfCustomers - 1) / 64 : 0;
     }
 
     /**
@@ -61,7 +264,7 @@ public class BBNode {
     public void calculateVehicleUsed() {
         if (parent == null)
             vehicleUsed = 0;
-        else if (parent.vertex.type == VertexType.DEPOT)
+        else if (parent.isDepot())
             this.vehicleUsed = parent.vehicleUsed + 1;
         else
             this.vehicleUsed = parent.vehicleUsed;
@@ -73,14 +276,14 @@ public class BBNode {
     public void calculateCurTimeElapsed() {
         if (parent == null) curTimeElapsed = 0;
 
-        else if (parent.vertex.type == VertexType.DEPOT)
-            this.curTimeElapsed = GlobalVars.bbGraph.getDistance(parent.vertex, this.vertex);
+        else if (parent.isDepot())
+            this.curTimeElapsed = GlobalVars.bbDistances.get(parent.vertexId, this.vertexId);
 
-        else if (parent.vertex.type == VertexType.CUSTOMER)
-            this.curTimeElapsed = parent.curTimeElapsed + GlobalVars.bbGraph.getDistance(parent.vertex, this.vertex);
+        else
+            this.curTimeElapsed = parent.curTimeElapsed + GlobalVars.bbDistances.get(parent.vertexId, this.vertexId);
 
         calculateMaxTimeElapsed();
-        if (this.vertex.type == VertexType.DEPOT) this.curTimeElapsed = 0;
+        if (this.isDepot()) this.curTimeElapsed = 0;
     }
 
     /**
@@ -99,12 +302,10 @@ public class BBNode {
      * calculateRemainedCapacity
      */
     public void calculateRemainedCapacity() {
-        if (parent == null || this.vertex.type == VertexType.DEPOT)
+        if (parent == null || this.isDepot())
             this.remainedCapacity = GlobalVars.vehicleCapacity;
-        else if (this.vertex.type == VertexType.CUSTOMER)
-            this.remainedCapacity = parent.remainedCapacity - this.vertex.demand;
         else
-            this.remainedCapacity = parent.remainedCapacity;
+            this.remainedCapacity = parent.remainedCapacity - GlobalVars.customerDemands[vertexId];
     }
 
     /**
@@ -113,19 +314,20 @@ public class BBNode {
     public void calculateArrivalTime() {
         if (parent == null)
             this.arrivalTime = -1;
-        else if (parent.vertex.type == VertexType.DEPOT)
-            this.arrivalTime = GlobalVars.bbGraph.getDistance(parent.vertex, this.vertex);
+        else if (parent.isDepot())
+            this.arrivalTime = GlobalVars.bbDistances.get(parent.vertexId, this.vertexId);
             // this.arrivalTime = Math.max(vertex.dueDate, BBUtils.getDistance(parent.vertex, this.vertex));
         else
-            this.arrivalTime = parent.arrivalTime + GlobalVars.bbGraph.getDistance(parent.vertex, this.vertex);
+            this.arrivalTime = parent.arrivalTime + GlobalVars.bbDistances.get(parent.vertexId, this.vertexId);
     }
 
     /**
      * calculateThisVertexPenalty
      */
     public void calculateThisVertexPenalty() {
-        if (this.arrivalTime > this.vertex.dueDate)
-            this.thisVertexPenalty = this.vertex.penalty * (this.arrivalTime - this.vertex.dueDate);
+        double dueDate = GlobalVars.nodeDueDates[vertexId];
+        if (this.arrivalTime > dueDate)
+            this.thisVertexPenalty = GlobalVars.customerPenaltyCosts[vertexId] * (this.arrivalTime - dueDate);
         else
             this.thisVertexPenalty = 0;
     }
@@ -147,67 +349,151 @@ public class BBNode {
         if (parent == null)
             this.cumulativeTimeTaken = 0;
         else
-            this.cumulativeTimeTaken = parent.cumulativeTimeTaken + GlobalVars.bbGraph.getDistance(parent.vertex, this.vertex);
+            this.cumulativeTimeTaken = parent.cumulativeTimeTaken + GlobalVars.bbDistances.get(parent.vertexId, this.vertexId);
     }
 
     /**
      * calculateServicedNodes
      */
     public void calculateServicedNodes() {
+        int overflowLength = getServicedNodesOverflowLength();
+        if (overflowLength == 0)
+            this.servicedNodesOverflow = null;
+        else if (this.servicedNodesOverflow == null || this.servicedNodesOverflow.length != overflowLength)
+            this.servicedNodesOverflow = new long[overflowLength];
+
         if (parent == null) {
             this.numberOfServicedCustomers = 0;
-            this.servicedNodes = new boolean[GlobalVars.numberOfCustomers];
+            this.servicedNodes = 0;
+            if (overflowLength > 0) Arrays.fill(this.servicedNodesOverflow, 0);
         } else {
-            this.servicedNodes = Arrays.copyOf(parent.servicedNodes, parent.servicedNodes.length);
+            this.servicedNodes = parent.servicedNodes;
+            if (overflowLength > 0)
+                System.arraycopy(parent.servicedNodesOverflow, 0, this.servicedNodesOverflow, 0, overflowLength);
             this.numberOfServicedCustomers = parent.numberOfServicedCustomers;
 
-            if (this.vertex.type == VertexType.CUSTOMER) {
+            if (!this.isDepot()) {
                 this.numberOfServicedCustomers++;
-                this.servicedNodes[this.vertex.customerId] = true;
+                this.setServiced(this.vertexId);
+            }
+        }
+
+    }
+
+    /**
+     * calculateRemainedDemandCounts
+     */
+    public void calculateRemainedDemandCounts() {
+        int numberOfDistinctDemands = GlobalVars.distinctDemands.length;
+        int bits = GlobalVars.demandCountBits;
+
+        if (bits > 0) {
+            this.remainedDemandCountsOverflow = null;
+        } else if (this.remainedDemandCountsOverflow == null
+                || this.remainedDemandCountsOverflow.length != numberOfDistinctDemands) {
+            this.remainedDemandCountsOverflow = new int[numberOfDistinctDemands];
+        }
+
+        if (parent == null) {
+            this.remainedDemandCounts = 0;
+            if (bits == 0) Arrays.fill(this.remainedDemandCountsOverflow, 0);
+            for (int i = 0; i < GlobalVars.numberOfCustomers; i++) {
+                int index = GlobalVars.customerDemandIndexes[i];
+                if (bits > 0) this.remainedDemandCounts += 1L << (index * bits);
+                else this.remainedDemandCountsOverflow[index]++;
+            }
+        } else {
+            this.remainedDemandCounts = parent.remainedDemandCounts;
+            if (bits == 0)
+                System.arraycopy(parent.remainedDemandCountsOverflow, 0,
+                        this.remainedDemandCountsOverflow, 0, numberOfDistinctDemands);
+
+            if (!this.isDepot()) {
+                int index = GlobalVars.customerDemandIndexes[this.vertexId];
+                if (bits > 0) this.remainedDemandCounts -= 1L << (index * bits);
+                else this.remainedDemandCountsOverflow[index]--;
             }
         }
+    }
 
+    /**
+     * calculateRouteFirstCustomer
+     */
+    public void calculateRouteFirstCustomer() {
+        if (parent == null)
+            this.routeFirstCustomer = -1;
+        else if (parent.isDepot())
+            this.routeFirstCustomer = this.vertexId;
+        else
+            this.routeFirstCustomer = parent.routeFirstCustomer;
     }
 
     /**
-     * calculateParentStartTime
+     * @return number of unserviced customers with the demand in the given index of GlobalVars.distinctDemands
      */
-    public void calculateParentStartTime() {
-        if (parent != null && parent.vertex.type == VertexType.DEPOT)
-            parent.startTime = this.arrivalTime - GlobalVars.bbGraph.getDistance(parent.vertex, this.vertex);
+    public int getRemainedDemandCount(int demandIndex) {
+        int bits = GlobalVars.demandCountBits;
+        if (bits == 0) return remainedDemandCountsOverflow[demandIndex];
+        return (int) ((remainedDemandCounts >>> (demandIndex * bits)) & ((1L << bits) - 1));
+    }
 
-        // for finished nodes.
-        if (parent != null && this.vertex.type == VertexType.DEPOT
+    /**
+     * @return the time when vehicle starts moving from the depot node (-1 for the finished nodes)
+     */
+    public double getStartTime() {
+        if (parent != null && this.isDepot()
                 && this.numberOfServicedCustomers == GlobalVars.numberOfCustomers)
-            this.startTime = -1;
+            return -1;
+        return 0; // vehicles start moving as soon as they leave the depot
     }
 
 
+    /**
+     * evaluate
+     * calculates cost, lower bound and feasibility of the node
+     */
+    public void evaluate() {
+        this.cost = cumulativeTimeTaken + cumulativePenaltyTaken + vehicleUsed * GlobalVars.vehicleFixedCost;
+        this.extraVehiclesNeeded = this.getLowerBoundForNumberOfExtraVehiclesNeeded();
+        this.infeasible = this.vehicleUsed > GlobalVars.numberOfVehicles
+                || this.extraVehiclesNeeded > GlobalVars.numberOfVehicles - this.vehicleUsed;
+        double penaltyBound = this.getLowerBoundForPenaltyTaken();
+        double vehiclesBound = this.extraVehiclesNeeded * GlobalVars.vehicleFixedCost;
+        double travelBound = this.getLowerBoundForCumulativeTimeNeededForAllVehicles();
+        if (GlobalVars.useLagrangianBound) {
+            double target = GlobalVars.minimumValue - this.cost - penaltyBound - vehiclesBound;
+            travelBound = Math.max(travelBound, LagrangianBound.get().calculate(this, target));
+        }
+        this.lowerBound = penaltyBound + travelBound + vehiclesBound;
+    }
+
     /**
      * @return cost of the node that we are there
      */
-    public double getCost() {            // calculates branch and bound cost of the node
-        return cumulativeTimeTaken + cumulativePenaltyTaken + vehicleUsed * GlobalVars.vehicleFixedCost;
+    public double getCost() {
+        return cost;
     }
 
     /**
-     * Calculates lower bound for this node
-     *
      * @return lower bound for this node
      */
     public double getLowerBound() {
-        return this.getLowerBoundForPenaltyTaken()
-                + this.getLowerBoundForCumulativeTimeNeededForAllVehicles()
-                + this.getLowerBoundForNumberOfExtraVehiclesNeeded() * GlobalVars.vehicleFixedCost;
+        return lowerBound;
+    }
+
+    /**
+     * @return cost plus lower bound, used for ordering the nodes in best first search
+     * (bound of the remaining children for an expanding node)
+     */
+    public double getPriority() {
+        return nextCandidate < 0 ? cost + lowerBound : optimisticPriority;
     }
 
     /**
      * @return minimum number of extra vehicles needed to serve the remaining customers
      */
     public int getLowerBoundForNumberOfExtraVehiclesNeeded() {
-        return Greedy.minimumExtraVehiclesNeeded(
-                this.getUnservicedCustomersDemands(), this.remainedCapacity, GlobalVars.vehicleCapacity
-        );
+        return VehiclesBound.get().calculate(this);
     }
 
     /**
@@ -217,10 +503,9 @@ public class BBNode {
      */
     public int getLowerBoundForCumulativeTimeNeededForAllVehicles() {
         int sum = 0;
-        for (Vertex v : GlobalVars.bbGraph.getVertices()) {
-            if (v.type == VertexType.CUSTOMER
-                    && this.servicedNodes[v.customerId] == false) {
-                sum += getMinimumEdgeWeightOfVertex(v);
+        for (int i = 0; i < GlobalVars.numberOfCustomers; i++) {
+            if (!this.isServiced(i)) {
+                sum += getMinimumEdgeWeightOfVertex(i);
             }
         }
         return sum;
@@ -233,11 +518,11 @@ public class BBNode {
      * @return a lower bound for additional penalty taken
      */
     public double getLowerBoundForPenaltyTaken() {
-        if (this.vertex.type == VertexType.DEPOT) return 0;
+        if (this.isDepot()) return 0;
 
         double lowestFinishTime = this.curTimeElapsed + this.getMinimumAdditionalTimeNeededToTheEndThePath();
 
-        Vertex depotVertex = GlobalVars.bbGraph.getVertexByName(GlobalVars.depotName);
+        Vertex depotVertex = GlobalVars.bbVertices[GlobalVars.depotId];
 
         if (lowestFinishTime > depotVertex.dueDate)
             return (lowestFinishTime - depotVertex.dueDate) * depotVertex.penalty;
@@ -247,45 +532,29 @@ public class BBNode {
 
     /**
      * @return minimum edge weight of a given vertex
+     * (first neighbour in the sorted neighbours that is not a serviced customer)
      */
-    public double getMinimumEdgeWeightOfVertex(Vertex v) {
-        double min = Integer.MAX_VALUE;
-        for (Vertex u : v.neighbours.keySet()) {
-            if (u.name.equals(v.name)) continue;
-            if (!u.name.equals(this.vertex.name)
-                    && u.type == VertexType.CUSTOMER
-                    && this.servicedNodes[u.customerId] == true) continue;
-
-            min = Math.min(min, GlobalVars.bbGraph.getDistance(u, v));
+    public double getMinimumEdgeWeightOfVertex(int vId) {
+        NeighbourTable table = GlobalVars.bbNeighbours;
+        int end = table.getRowStart(vId) + table.getRowLength();
+        for (int i = table.getRowStart(vId); i < end; i++) {
+            int uId = table.getNeighbourId(i);
+            if (uId == this.vertexId
+                    || uId == GlobalVars.depotId
+                    || !this.isServiced(uId)) return table.getNeighbourDistance(i);
         }
-        return min;
+        return Integer.MAX_VALUE;
     }
 
     /**
      * @return minimum time needed to end this path
      */
     public double getMinimumAdditionalTimeNeededToTheEndThePath() {
-        Vertex depotVertex = GlobalVars.bbGraph.getVertexByName(GlobalVars.depotName);
-
-        if (this.vertex.type != VertexType.DEPOT)
-            return this.vertex.neighbours.get(depotVertex);
+        if (!this.isDepot())
+            return GlobalVars.bbDistances.get(this.vertexId, GlobalVars.depotId);
         return 0;
     }
 
-    /**
-     * @return array of unserviced customers demands
-     */
-    public Integer[] getUnservicedCustomersDemands() {
-        int numberOfUnservicedCustomers = GlobalVars.numberOfCustomers - this.numberOfServicedCustomers;
-        Integer[] unservicedCustomersDemands = new Integer[numberOfUnservicedCustomers];
-
-        for (int i = 0, j = 0; i < GlobalVars.numberOfCustomers; i++) {
-            if (this.servicedNodes[i] == false) unservicedCustomersDemands[j++] = GlobalVars.customerDemands[i];
-        }
-
-        return unservicedCustomersDemands;
-    }
-
     /**
      * go up int the tree and print the path
      */
@@ -312,20 +581,22 @@ public class BBNode {
      * details of the node stat for the to string function
      */
     public String detailsForToString() {
-        return ", " + thisVertexPenalty + ", " + vertex.dueDate;
+        return ", " + thisVertexPenalty + ", " + getVertex().dueDate;
     }
 
     @Override
     public String toString() {
-        if (vertex.type == VertexType.DEPOT && startTime == -1)
+        Vertex vertex = getVertex();
+
+        if (isDepot() && getStartTime() == -1)
             return vertex + " (" + arrivalTime + detailsForToString() + ")";
 
-        else if (vertex.type == VertexType.DEPOT && arrivalTime == -1)
-            return vertex + " (" + startTime + ")";
+        else if (isDepot() && arrivalTime == -1)
+            return vertex + " (" + getStartTime() + ")";
 
-        else if (vertex.type == VertexType.DEPOT)
+        else if (isDepot())
             return vertex + " (" + arrivalTime + detailsForToString() + ")"
-                    + "\n" + vertex + " (" + startTime + ")";
+                    + "\n" + vertex + " (" + getStartTime() + ")";
 
         return vertex + " (" + arrivalTime + detailsForToString() + ")";
     }
@@ -0,0 +1,87 @@
+package VRP.Algorithms.BranchAndBound;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a free list of branch and bound nodes, so that branching
+ * doesn't allocate new nodes after the search warms up
+ * every thread has its own pool
+ */
+public class BBNodePool {
+    private static final ThreadLocal<BBNodePool> pools = new ThreadLocal<BBNodePool>() {
+        @Override
+        protected BBNodePool initialValue() {
+            return new BBNodePool();
+        }
+    };
+
+    private static final LongAdder liveNodes = new LongAdder(); // nodes acquired and not freed (of all pools)
+
+    private BBNode[] freeNodes = new BBNode[1024];
+    private int size;
+
+    // for reporting
+    private long allocatedNodes;
+    private long reusedNodes;
+
+    /**
+     * @return pool of the current thread
+     */
+    public static BBNodePool get() {
+        return pools.get();
+    }
+
+    /**
+     * @return a free node, a new one only if the pool is empty
+     */
+    BBNode acquire() {
+        liveNodes.increment();
+        if (size == 0) {
+            allocatedNodes++;
+            return new BBNode();
+        }
+        reusedNodes++;
+        BBNode node = freeNodes[--size];
+        freeNodes[size] = null;
+        return node;
+    }
+
+    /**
+     * puts back a node that is not referenced anymore
+     */
+    void free(BBNode node) {
+        liveNodes.decrement();
+        if (size == freeNodes.length) freeNodes = Arrays.copyOf(freeNodes, size * 2);
+        freeNodes[size++] = node;
+    }
+
+    /**
+     * removes the free nodes, so the garbage collector can take them
+     */
+    public void clear() {
+        freeNodes = new BBNode[1024];
+        size = 0;
+    }
+
+    /**
+     * @return number of nodes in use (not in the free lists) of all threads
+     */
+    public static long getLiveNodes() {
+        return liveNodes.sum();
+    }
+
+    /**
+     * @return number of nodes that allocated by this pool
+     */
+    public long getAllocatedNodes() {
+        return allocatedNodes;
+    }
+
+    /**
+     * @return number of nodes that reused by this pool
+     */
+    public long getReusedNodes() {
+        return reusedNodes;
+    }
+}
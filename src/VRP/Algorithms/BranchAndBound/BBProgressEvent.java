@@ -0,0 +1,46 @@
+package VRP.Algorithms.BranchAndBound;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a snapshot of the branch and bound metrics
+ */
+@Name("VRP.BranchAndBoundProgress")
+@Label("Branch and Bound Progress")
+@Category("VRP")
+@Description("Periodic snapshot of the branch and bound search")
+public class BBProgressEvent extends Event {
+    @Label("Nodes Created")
+    long nodesCreated;
+
+    @Label("Nodes Branched")
+    long nodesBranched;
+
+    @Label("Queue Size")
+    long queueSize;
+
+    @Label("Incumbent")
+    double incumbent;
+
+    @Label("Best Bound")
+    double bestBound;
+
+    @Label("Gap")
+    double gap;
+
+    @Label("Pruned By Cost")
+    long prunedByCost;
+
+    @Label("Pruned By Vehicles")
+    long prunedByVehicles;
+
+    @Label("Pruned By Lower Bound")
+    long prunedByLowerBound;
+
+    @Label("Pruned By Dominance")
+    long prunedByDominance;
+}
@@ -0,0 +1,40 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+
+/**
+ * limits of an anytime branch and bound search (see BranchAndBound.solve)
+ * the search stops at the first limit that is reached
+ */
+public class BBSolveLimits {
+    public static final BBSolveLimits NONE = new BBSolveLimits(Long.MAX_VALUE, Long.MAX_VALUE, 0);
+
+    public final long timeLimitMilliSecond;   // wall clock time of the search
+    public final long nodeLimit;              // number of branched nodes
+    public final double targetGap;            // relative gap between the answer and the lower bound (0.01 -> 1%)
+
+    /**
+     * @param timeLimitMilliSecond wall clock time of the search
+     * @param nodeLimit            number of nodes that can be branched
+     * @param targetGap            the search stops when (answer - lower bound) / answer <= targetGap
+     */
+    public BBSolveLimits(long timeLimitMilliSecond, long nodeLimit, double targetGap) {
+        this.timeLimitMilliSecond = timeLimitMilliSecond;
+        this.nodeLimit = nodeLimit;
+        this.targetGap = targetGap;
+    }
+
+    /**
+     * @return the limit that is reached or null if the search can go on
+     */
+    BBSolveResult.Status check(long startTime, long branchedNodes, double incumbent, double lowerBound) {
+        if (branchedNodes >= nodeLimit) return BBSolveResult.Status.NODE_LIMIT;
+        if (timeLimitMilliSecond != Long.MAX_VALUE
+                && (System.nanoTime() - startTime) / 1_000_000 >= timeLimitMilliSecond)
+            return BBSolveResult.Status.TIME_LIMIT;
+        if (targetGap > 0 && incumbent < GlobalVars.INF
+                && BBMetricsReporter.getGap(incumbent, lowerBound) <= targetGap)
+            return BBSolveResult.Status.GAP_REACHED;
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package VRP.Algorithms.BranchAndBound;
+
+/**
+ * answer of an anytime branch and bound search
+ */
+public class BBSolveResult {
+    /**
+     * why the search stopped
+     */
+    public enum Status {
+        OPTIMAL,        // the tree is explored, the answer is optimal
+        NO_SOLUTION,    // the tree is explored, there is no answer better than the initial upper bound
+        GAP_REACHED,    // the answer is within the target gap of the lower bound
+        TIME_LIMIT,     // time limit is reached
+        NODE_LIMIT      // node limit is reached
+    }
+
+    public final Status status;
+    public final BBNode bestNode;           // best answer (null if no answer is found)
+    public final double cost;               // cost of the best answer (the initial upper bound if none is found)
+    public final double lowerBound;         // lower bound for the optimal answer (minimum priority of the frontier)
+    public final double gap;                // (cost - lowerBound) / cost
+    public final long branchedNodes;
+    public final long elapsedMilliSecond;
+
+    public BBSolveResult(Status status, BBNode bestNode, double cost, double lowerBound,
+                         long branchedNodes, long elapsedMilliSecond) {
+        this.status = status;
+        this.bestNode = bestNode;
+        this.cost = cost;
+        this.lowerBound = lowerBound;
+        this.gap = BBMetricsReporter.getGap(cost, lowerBound);
+        this.branchedNodes = branchedNodes;
+        this.elapsedMilliSecond = elapsedMilliSecond;
+    }
+
+    /**
+     * @return a line that describes the result
+     */
+    public String getPrintString() {
+        return String.format("Status: %s,\t\tCost: %.2f,\t\tLower bound: %.2f,\t\tGap: %.2f%%,\t\t"
+                + "Branched nodes: %d,\t\tTime: %.2fs", status, cost, lowerBound, gap * 100,
+                branchedNodes, elapsedMilliSecond / 1000.);
+    }
+}
@@ -2,27 +2,36 @@ package VRP.Algorithms.BranchAndBound;
 
 import VRP.Algorithms.Dijkstra.Dijkstra;
 import VRP.GlobalVars;
+import VRP.Graph.GeometryWriter;
 import VRP.Graph.Graph;
+import VRP.Graph.NeighbourTable;
 import VRP.Graph.Vertex;
-import VRP.Graph.VertexType;
 
+import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * a branch and bound algorithm for
  * solving vehicle routing problem (VRP)
  */
 public class BranchAndBound {
-    private Graph graph;
+    protected Graph graph;
 
     public double minimumCost;                // minimum cost we found
     public BBNode bestNode;                   // best node we found
 
-    private PriorityQueue<BBNode> pq;         // use priority queue (min heap) for best first search
+    private Frontier pq;                      // use priority queue (min heap) for best first search
+    protected DominanceStore dominanceStore;  // prunes the nodes that are dominated by a node in the tree (can be null)
+    protected BBIncumbentListener listener;   // gets the better answers of solve (can be null)
+    protected long solveStartTime;            // System.nanoTime() when solve is started
 
     /**
      * constructor for a given graph
@@ -36,76 +45,373 @@ public class BranchAndBound {
         // fill the Global variables
         GlobalVars.bbGraph = graph;
 
-        this.pq = new PriorityQueue<>(10, new Comparator<BBNode>() {
-            @Override
-            public int compare(BBNode u, BBNode v) {
-                return Double.compare(u.getCost() + u.getLowerBound(), v.getCost() + v.getLowerBound());
-            }
-        });
+        this.pq = new Frontier("main");
+        if (GlobalVars.dominanceStoreSize > 0) this.dominanceStore = new DominanceStore(GlobalVars.dominanceStoreSize);
     }
 
 
     /**
-     * runs the algorithm given the depot name
+     * runs the algorithm given the depot name until the tree is explored
      *
      * @param depotName is name of the depot (node that contains vehicles)
      */
     public void run(String depotName) {
+        solve(depotName, BBSolveLimits.NONE, null);
+    }
+
+    /**
+     * runs the algorithm until the tree is explored or a limit is reached
+     *
+     * @param depotName is name of the depot (node that contains vehicles)
+     * @param limits    time, node and gap limits of the search
+     * @param listener  gets every better answer as soon as it is found (can be null)
+     * @return best answer, lower bound and gap when the search stopped
+     */
+    public BBSolveResult solve(String depotName, BBSolveLimits limits, BBIncumbentListener listener) {
         System.out.println("--------------------------");
         System.out.println("Branch and bound algorithm");
         System.out.println("--------------------------");
-        // add initial node
-        Vertex depotVertex = graph.getVertexByName(depotName);
-        pq.add(new BBNode(depotVertex, null));
+        this.listener = listener;
+        this.solveStartTime = System.nanoTime();
+        BBMetrics.reset();
+
+        // add initial node or the nodes of the last checkpoint
+        Path checkpointPath = GlobalVars.checkpointPath == null ? null : Paths.get(GlobalVars.checkpointPath);
+        long branchedNodes = -1;
+        pq.clear();
+        if (GlobalVars.resumeFromCheckpoint && checkpointPath != null && Files.exists(checkpointPath))
+            branchedNodes = resume(checkpointPath);
+        if (branchedNodes < 0) {
+            Vertex depotVertex = graph.getVertexByName(depotName);
+            pq.add(BBNode.create(depotVertex.getId(), null));
+            branchedNodes = 0;
+        }
+
+        BBMetricsReporter reporter = new BBMetricsReporter(this, GlobalVars.printTimeStepSize);
+        reporter.start();
+        long nextCheckpointTime = solveStartTime + GlobalVars.checkpointPeriod * 1_000_000;
+        Future<?> checkpointWrite = null;
 
         // go down the tree
+        BBSolveResult.Status status = null;
         while (!pq.isEmpty()) {
+            if (checkpointPath != null && System.nanoTime() >= nextCheckpointTime) {
+                // skipped if the last one is still being written
+                if (checkpointWrite == null || checkpointWrite.isDone()) {
+                    Checkpoint checkpoint = makeCheckpoint(branchedNodes);
+                    if (checkpoint != null) checkpointWrite = checkpoint.writeInBackground(checkpointPath);
+                }
+                nextCheckpointTime = System.nanoTime() + GlobalVars.checkpointPeriod * 1_000_000;
+            }
+
             BBNode u = pq.poll();
-            if (canBePruned(u)) continue;
+            if (!canBePruned(u)) {
+                // best first, so u has the minimum priority of the tree
+                status = limits.check(solveStartTime, branchedNodes, minimumCost, u.getPriority());
+                if (status != null) {
+                    pq.add(u); // keep it for the lower bound
+                    break;
+                }
+                if (GlobalVars.diveFrequency > 0 && branchedNodes % GlobalVars.diveFrequency == 0) dive(u);
+                GlobalVars.numberOfBranchAndBoundNodes += branch(u, pq);
+                BBMetrics.nodesBranched.increment();
+                branchedNodes++;
+            }
+            u.release();
+        }
+        long elapsedMilliSecond = (System.nanoTime() - solveStartTime) / 1_000_000;
 
-            for (Vertex v : u.vertex.neighbours.keySet()) {
-                if (v.type == VertexType.DEPOT          // never go from depot to depot
-                        && u.vertex.type == VertexType.DEPOT) continue;
+        // the last checkpoint, so a resume goes on from here (or just gives the answer)
+        if (checkpointPath != null) {
+            try {
+                if (checkpointWrite != null) checkpointWrite.get();
+                Checkpoint checkpoint = makeCheckpoint(branchedNodes);
+                if (checkpoint != null) checkpoint.write(checkpointPath);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | IOException e) {
+                e.printStackTrace();
+            }
+        }
 
-                if (v.type == VertexType.DEPOT) {        // if you going to depot just go
-                    addNodeToPriorityQueue(new BBNode(v, u));
-                }
+        reporter.stop();
+        System.out.println("Nodes allocated: " + BBNodePool.get().getAllocatedNodes()
+                + ", Nodes reused: " + BBNodePool.get().getReusedNodes());
+        System.out.println(pq.getPrintStatsString());
+        if (dominanceStore != null) System.out.println(dominanceStore.getPrintStatsString());
+        if (GlobalVars.diveFrequency > 0)
+            System.out.println("Dives: " + BBMetrics.dives.sum() + ", Improved answers: " + BBMetrics.diveImprovements.sum());
+        if (GlobalVars.useLocalSearch)
+            System.out.println("Answers improved by the local search: " + BBMetrics.localSearchImprovements.sum());
 
-                if (v.type == VertexType.CUSTOMER) {
-                    // pruning criteria
-                    if (u.remainedCapacity < v.demand) continue;   // check demand criterion
-                    if (u.servicedNodes[v.customerId] == true) continue; // check if this node serviced before
+        return makeResult(status, branchedNodes, elapsedMilliSecond);
+    }
 
-                    // make new node
-                    BBNode newNode = new BBNode(v, u);
-                    addNodeToPriorityQueue(newNode);
-                }
+    /**
+     * encodes the answer, the counters and the frontier
+     *
+     * @return the checkpoint or null if the frontier can't be read
+     */
+    private Checkpoint makeCheckpoint(long branchedNodes) {
+        Checkpoint checkpoint = new Checkpoint(minimumCost, bestNode,
+                GlobalVars.numberOfBranchAndBoundNodes, branchedNodes);
+        try {
+            pq.snapshot(checkpoint);
+        } catch (IOException e) {
+            e.printStackTrace();
+            checkpoint.close();
+            return null;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * fills the frontier, the answer and the counters from a checkpoint
+     *
+     * @return number of branched nodes of the checkpoint or -1 if it can't be read
+     */
+    private long resume(Path checkpointPath) {
+        Checkpoint checkpoint;
+        try {
+            checkpoint = Checkpoint.load(checkpointPath, pq);
+        } catch (IOException e) {
+            e.printStackTrace();
+            pq.clear(); // start from the root
+            return -1;
+        }
+
+        if (checkpoint.incumbentCost < minimumCost) {
+            if (bestNode != null) bestNode.release();
+            bestNode = checkpoint.incumbent;
+            minimumCost = checkpoint.incumbentCost;
+            GlobalVars.minimumValue = minimumCost;
+        } else if (checkpoint.incumbent != null) {
+            checkpoint.incumbent.release();
+        }
+        GlobalVars.numberOfBranchAndBoundNodes = (int) checkpoint.numberOfBranchAndBoundNodes;
+        System.out.println("Resumed from " + checkpointPath + " -> Frontier nodes: " + pq.size()
+                + ", Minimum value: " + String.format("%.2f", minimumCost));
+        return checkpoint.branchedNodes;
+    }
+
+    /**
+     * @param status             the limit that stopped the search (null if the tree is explored)
+     * @param branchedNodes      number of branched nodes
+     * @param elapsedMilliSecond time of the search
+     * @return result of the search with the current answer and frontier
+     */
+    protected BBSolveResult makeResult(BBSolveResult.Status status, long branchedNodes, long elapsedMilliSecond) {
+        double lowerBound = minimumCost;
+        if (status == null) status = bestNode != null ? BBSolveResult.Status.OPTIMAL : BBSolveResult.Status.NO_SOLUTION;
+        else lowerBound = Math.min(getGlobalLowerBound(), minimumCost);
+        return new BBSolveResult(status, bestNode, minimumCost, lowerBound, branchedNodes, elapsedMilliSecond);
+    }
+
+    /**
+     * makes the children of a node and adds them to the given queue
+     *
+     * @param u:     node that must be branched
+     * @param queue: queue that children must be added to
+     * @return number of children added to the queue
+     */
+    protected int branch(BBNode u, Frontier queue) {
+        if (GlobalVars.useLazyExpansion) return branchLazily(u, queue);
+        int numberOfAddedNodes = 0;
+
+        for (int v = 0; v < GlobalVars.numberOfNodes; v++) {
+            // pruning criteria (demand, serviced before, order of the routes)
+            if (!u.canBranchTo(v)) continue;
+
+            // make new node
+            BBNode newNode = BBNode.create(v, u);
+            if (addNodeToPriorityQueue(newNode, queue)) numberOfAddedNodes++;
+        }
+
+        return numberOfAddedNodes;
+    }
+
+    /**
+     * makes the next children of a node (by the optimistic bounds, see BBNode.startExpansion)
+     * and adds the node back to the queue with the bound of its remaining children
+     *
+     * @param u:     node that must be branched (or is expanding)
+     * @param queue: queue that the child and the node must be added to
+     * @return number of children added to the queue
+     */
+    private int branchLazily(BBNode u, Frontier queue) {
+        if (!u.isExpanding()) u.startExpansion(0);
+        int numberOfAddedNodes = 0;
+
+        // the node would be polled again at once while its bound is the best of the queue
+        // (and not reaching the answer), so those children are made without the round trip
+        while (u.hasNextCandidate()) {
+            if (addNodeToPriorityQueue(BBNode.create(u.pollCandidate(), u), queue)) numberOfAddedNodes++;
+            if (u.getPriority() >= getMinimumCost() || u.getPriority() > queue.getMinimumPriority()) break;
+        }
+
+        // the remaining children are pruned at once if their bound reaches the answer
+        if (u.hasNextCandidate() && u.getPriority() < getMinimumCost()) {
+            u.retain(); // for the queue
+            pushNode(u, queue);
+        } else {
+            u.finishExpansion();
+        }
+        return numberOfAddedNodes;
+    }
+
+    /**
+     * goes down from a node to an answer without backtracking, always to the nearest unserviced
+     * customer whose child can't be pruned (or back to the depot when no customer fits, see makeDiveChild),
+     * so best first search gets answers to prune with early. the nodes of the dive are not queued.
+     *
+     * @param u node that the dive starts from (the caller keeps its reference)
+     * @return true if the dive improved the answer
+     */
+    protected boolean dive(BBNode u) {
+        BBMetrics.dives.increment();
+        u.retain(); // for the dive
+        BBNode node = u;
+        while (!(node.isDepot() && node.numberOfServicedCustomers == GlobalVars.numberOfCustomers)) {
+            BBNode child = makeDiveChild(node);
+            node.release(); // the child keeps its parent
+            if (child == null) return false;
+            node = child;
+        }
+
+        if (node.getCost() < getMinimumCost()) {
+            acceptTheAnswer(node);
+            BBMetrics.diveImprovements.increment();
+            return true;
+        }
+        node.release();
+        return false;
+    }
+
+    /**
+     * @return the child of the dive (see dive) or null if all children can be pruned
+     */
+    private BBNode makeDiveChild(BBNode u) {
+        // routes must start in order of their first customer (symmetry breaking), so a new route
+        // starts from the smallest customer it can, otherwise the smaller ones may get no route
+        if (u.isDepot() && GlobalVars.useSymmetryBreaking) {
+            for (int v = 0; v < GlobalVars.numberOfCustomers; v++) {
+                if (!u.canBranchTo(v)) continue;
+                BBNode child = BBNode.create(v, u);
+                if (!child.infeasible && child.getPriority() < getMinimumCost()) return child;
+                child.release();
+                break;
             }
         }
+
+        NeighbourTable table = GlobalVars.bbNeighbours;
+        int end = table.getRowStart(u.vertexId) + table.getRowLength();
+        for (int i = table.getRowStart(u.vertexId); i <= end; i++) {
+            // the depot is tried after all of the customers
+            int v = i < end ? table.getNeighbourId(i) : GlobalVars.depotId;
+            if ((v == GlobalVars.depotId && i < end) || !u.canBranchTo(v)) continue;
+
+            BBNode child = BBNode.create(v, u);
+            if (!child.infeasible && child.getPriority() < getMinimumCost()) return child;
+            child.release();
+        }
+        return null;
     }
 
     /**
      * add new node to the queue and check some criteria
+     * nodes that are not added are answers or released
      *
      * @param newNode node that must be added to the pq.
+     * @param queue   queue that node must be added to
+     * @return true if the node is added to the queue
      */
-    void addNodeToPriorityQueue(BBNode newNode) {
+    boolean addNodeToPriorityQueue(BBNode newNode, Frontier queue) {
 
         // if this node is an answer
-        if (newNode.vertex.type == VertexType.DEPOT
-                && newNode.numberOfServicedCustomers == GlobalVars.numberOfCustomers
-                && newNode.getCost() <= minimumCost) {
-            bestNode = newNode;
-            minimumCost = newNode.getCost();
-            GlobalVars.minimumValue = minimumCost;
-            return;
+        if (newNode.isDepot()
+                && newNode.numberOfServicedCustomers == GlobalVars.numberOfCustomers) {
+            if (newNode.getCost() <= getMinimumCost()) acceptTheAnswer(newNode);
+            else newNode.release();
+            return false;
         }
 
-        // if this node is a intermediate node add it to the queue.
+        // if this node is a intermediate node and not dominated add it to the queue.
         if (!canBePruned(newNode)) {
-            pq.add(newNode);
-            GlobalVars.numberOfBranchAndBoundNodes++;
+            if (dominanceStore == null || !dominanceStore.isDominated(newNode)) {
+                pushNode(newNode, queue);
+                return true;
+            }
+            BBMetrics.prunedByDominance.increment();
         }
+        newNode.release();
+        return false;
+    }
+
+    /**
+     * adds a node that is not pruned to the queue
+     */
+    protected void pushNode(BBNode newNode, Frontier queue) {
+        queue.add(newNode);
+    }
+
+    /**
+     * @return minimum cost we found so far (used for pruning)
+     */
+    protected double getMinimumCost() {
+        return minimumCost;
+    }
+
+    /**
+     * improves a new answer with the local search (GlobalVars.useLocalSearch) and makes it the best answer
+     * (the answer keeps the reference of the node)
+     */
+    protected void acceptTheAnswer(BBNode newNode) {
+        if (GlobalVars.useLocalSearch) {
+            BBNode improvedNode = LocalSearch.get().improve(newNode);
+            if (improvedNode != null) {
+                newNode.release();
+                newNode = improvedNode;
+                BBMetrics.localSearchImprovements.increment();
+            }
+        }
+        updateTheAnswer(newNode);
+    }
+
+    /**
+     * replaces the best answer with the given terminal node
+     * (the answer keeps the reference of the node)
+     */
+    protected void updateTheAnswer(BBNode newNode) {
+        if (listener != null) notifyListener(newNode);
+        if (bestNode != null) bestNode.release();
+        bestNode = newNode;
+        minimumCost = newNode.getCost();
+        GlobalVars.minimumValue = minimumCost;
+        BBMetrics.incumbentUpdates.increment();
+        BBIncumbentEvent.commit(minimumCost, newNode.vehicleUsed);
+    }
+
+    /**
+     * gives the new answer to the listener
+     */
+    protected void notifyListener(BBNode newNode) {
+        listener.newIncumbent(newNode.getCost(), newNode.getStringPath(),
+                (System.nanoTime() - solveStartTime) / 1_000_000);
+    }
+
+    /**
+     * @return number of nodes in the frontier (read by BBMetricsReporter from another thread)
+     */
+    protected long getFrontierSize() {
+        return pq.size();
+    }
+
+    /**
+     * @return minimum priority of the frontier nodes, a lower bound for the answer
+     * (read by BBMetricsReporter from another thread)
+     */
+    protected double getGlobalLowerBound() {
+        return pq.getMinimumPriority();
     }
 
     /**
@@ -115,25 +421,31 @@ public class BranchAndBound {
     boolean canBePruned(BBNode newNode) {
 
         // if new Node so far cost is more than minimum cost
-        if (newNode.getCost() >= minimumCost)
-            return true;
-
-        // if number of vehicles used is more than we have
-        if (newNode.vehicleUsed > GlobalVars.numberOfVehicles)
+        double minimumCost = getMinimumCost();
+        if (newNode.getCost() >= minimumCost) {
+            BBMetrics.prunedByCost.increment();
             return true;
+        }
 
-        // if can service remained customers with the remained vehicles
-        if (newNode.getLowerBoundForNumberOfExtraVehiclesNeeded() > GlobalVars.numberOfVehicles - newNode.vehicleUsed)
+        // if number of vehicles used is more than we have or
+        // can't service remained customers with the remained vehicles
+        if (newNode.infeasible) {
+            BBMetrics.prunedByVehicles.increment();
             return true;
+        }
 
         // check lower bound
-        if (newNode.getCost() + newNode.getLowerBound() >= minimumCost)
+        if (newNode.getPriority() >= minimumCost) {
+            BBMetrics.prunedByLowerBound.increment();
             return true;
+        }
 
         // if this node is a terminal node and not reducing the minimum answer throw it out.
-        if (newNode.vertex.type == VertexType.DEPOT
-                && newNode.numberOfServicedCustomers == GlobalVars.numberOfCustomers)
+        if (newNode.isDepot()
+                && newNode.numberOfServicedCustomers == GlobalVars.numberOfCustomers) {
+            BBMetrics.prunedTerminal.increment();
             return true;
+        }
 
         // else
         return false;
@@ -150,21 +462,33 @@ public class BranchAndBound {
 
         for (int j = 0; j < routes.length; j++) {
             String filePath = folderPath + "route" + j + ".csv";
-            FileOutputStream fileOutputStream = new FileOutputStream(filePath);
-            PrintWriter printWriter = new PrintWriter(fileOutputStream);
-
-            printWriter.println("OBJECTID;wrk");
-            String[] routeNodes = routes[j].split("->");
-            for (int i = 0; i < routeNodes.length - 1; i++) {
-                String[] edgesWTKs = dijkstra.getTheShortestPathEdgesWTKStringBetweenTwoNodes(
-                        routeNodes[i].trim().split(" ")[0], routeNodes[i + 1].trim().split(" ")[0]
-                ).split("\n");
-
-                for (int k = 0; k < edgesWTKs.length; k++) {
-                    printWriter.println(k + ";" + edgesWTKs[k]);
-                }
-            }
-            printWriter.close();
+            GeometryWriter writer = new GeometryWriter(new PrintWriter(new BufferedOutputStream(
+                    new FileOutputStream(filePath))), GeometryWriter.Format.WKT);
+            writeRoute(routes[j], j, dijkstra, writer);
+            writer.close();
+        }
+    }
+
+    /**
+     * export the routes of the result as a GeoJSON FeatureCollection (edges have the number of their route)
+     */
+    public void exportTheResultGeoJSON(String filePath, Dijkstra dijkstra) throws FileNotFoundException {
+        String[] routes = bestNode.getStringPath().split("\n");
+
+        GeometryWriter writer = new GeometryWriter(new PrintWriter(new BufferedOutputStream(
+                new FileOutputStream(filePath))), GeometryWriter.Format.GEO_JSON);
+        for (int j = 0; j < routes.length; j++) writeRoute(routes[j], j, dijkstra, writer);
+        writer.close();
+    }
+
+    /**
+     * writes the road edges of every leg of the route (the shortest path trees of dijkstra are used)
+     */
+    private void writeRoute(String route, int routeNumber, Dijkstra dijkstra, GeometryWriter writer) {
+        String[] routeNodes = route.split("->");
+        for (int i = 0; i < routeNodes.length - 1; i++) {
+            dijkstra.writeShortestPath(routeNodes[i].trim().split(" ")[0], routeNodes[i + 1].trim().split(" ")[0],
+                    routeNumber, writer);
         }
     }
 
@@ -0,0 +1,341 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * a binary checkpoint of a branch and bound search: the answer, the counters and the frontier
+ * <p>
+ * file: magic, version, number of nodes, depot id, cost of the answer, path length of the answer
+ * (-1 if there is no answer) and its vertex ids, number of branch and bound nodes, number of branched
+ * nodes, size of the tree, number of spilled segments, the tree and then the spilled segments: number
+ * of records, bytes of the records after the first priority and the sorted Frontier segment records.
+ * on load the spilled segments are copied to new segments of the frontier without rebuilding their nodes.
+ * <p>
+ * the tree has the in memory frontier nodes and their ancestors, every node once (parents first):
+ * index of the parent (int, -1 for the root), vertex id (short), 0 if it isn't a frontier node or else
+ * its next candidate plus 2 (short, see BBNode.startExpansion, 1 for the nodes that aren't expanding).
+ * so the search thread only visits the nodes that are not visited for another frontier node
+ * (BBNode.checkpointIndex), the file is written by a background thread to a temporary file
+ * and then moved on the checkpoint file.
+ */
+public class Checkpoint {
+    private static final int MAGIC = 0x56525043; // "VRPC"
+    private static final int VERSION = 3;
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int TREE_ENTRY_SIZE = 4 + 2 + 2;
+
+    // BBNode.checkpointIndex of the nodes of a checkpoint is in [firstIndex, nextIndex),
+    // so the older checkpoints don't need to be cleared
+    private static int nextIndex = 0;
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "bb-checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public double incumbentCost;
+    public BBNode incumbent;                  // only for the loaded checkpoints (null if there is no answer)
+    public long numberOfBranchAndBoundNodes;
+    public long branchedNodes;
+
+    private short[] incumbentPath;            // reversed vertex ids of the answer
+    private int incumbentPathLength = -1;
+    private final List<ByteBuffer> tree = new ArrayList<>();  // in memory frontier nodes and their ancestors in chunks
+    private int firstIndex;
+    private int treeSize;
+    private BBNode[] unvisited = new BBNode[0];
+    private final List<SegmentPart> segmentParts = new ArrayList<>();
+
+    /**
+     * constructor for a loaded checkpoint
+     */
+    private Checkpoint() {
+    }
+
+    /**
+     * starts a checkpoint, the frontier is added by Frontier.snapshot
+     *
+     * @param incumbentCost               cost of the best answer (or the upper bound)
+     * @param incumbent                   best answer (can be null)
+     * @param numberOfBranchAndBoundNodes nodes added to the tree
+     * @param branchedNodes               nodes branched
+     */
+    public Checkpoint(double incumbentCost, BBNode incumbent, long numberOfBranchAndBoundNodes, long branchedNodes) {
+        this.incumbentCost = incumbentCost;
+        this.numberOfBranchAndBoundNodes = numberOfBranchAndBoundNodes;
+        this.branchedNodes = branchedNodes;
+        if (incumbent != null) {
+            incumbentPath = new short[GlobalVars.numberOfNodes * 2 + 1];
+            incumbentPathLength = Frontier.Segment.getReversedPath(incumbent, incumbentPath);
+        }
+    }
+
+    /**
+     * encodes the in memory frontier nodes with their ancestors
+     */
+    void addNodes(Iterable<BBNode> nodes) {
+        if (nextIndex > Integer.MAX_VALUE / 2) {
+            // indexes wrap around, so the old indexes must be cleared first
+            for (BBNode node : nodes) {
+                for (BBNode u = node; u != null && u.checkpointIndex >= 0; u = u.parent) u.checkpointIndex = -1;
+            }
+            nextIndex = 0;
+        }
+        firstIndex = nextIndex;
+
+        for (BBNode node : nodes) {
+            if (node.checkpointIndex >= firstIndex) {
+                // an expanding node that is written as the ancestor of a node visited before it
+                setFrontierState(node.checkpointIndex - firstIndex, node);
+                continue;
+            }
+
+            int length = 0;
+            for (BBNode u = node; u != null && u.checkpointIndex < firstIndex; u = u.parent) {
+                if (length == unvisited.length) unvisited = Arrays.copyOf(unvisited, length * 2 + 16);
+                unvisited[length++] = u;
+            }
+
+            for (int i = length - 1; i >= 0; i--) {
+                BBNode u = unvisited[i];
+                ByteBuffer chunk = tree.isEmpty() ? null : tree.get(tree.size() - 1);
+                if (chunk == null || chunk.remaining() < TREE_ENTRY_SIZE) {
+                    chunk = ByteBuffer.allocate(CHUNK_SIZE);
+                    tree.add(chunk);
+                }
+                chunk.putInt(u.parent == null ? -1 : u.parent.checkpointIndex - firstIndex);
+                chunk.putShort((short) u.vertexId);
+                chunk.putShort((short) (u == node ? getFrontierState(u) : 0));
+                u.checkpointIndex = nextIndex++;
+                treeSize++;
+            }
+        }
+    }
+
+    /**
+     * @return frontier state of a frontier node in the tree: its next candidate plus 2 (1 if it isn't expanding)
+     */
+    private static int getFrontierState(BBNode node) {
+        return node.nextCandidate + 2;
+    }
+
+    /**
+     * sets the frontier state of a node that is already in the tree (entries never cross the chunks)
+     */
+    private void setFrontierState(int index, BBNode node) {
+        int entriesPerChunk = CHUNK_SIZE / TREE_ENTRY_SIZE;
+        tree.get(index / entriesPerChunk).putShort((index % entriesPerChunk) * TREE_ENTRY_SIZE + 4 + 2,
+                (short) getFrontierState(node));
+    }
+
+    /**
+     * adds the remained records of a spilled segment, the file is opened here so
+     * it can be read even if the frontier deletes it before the checkpoint is written
+     *
+     * @param headPriority priority of the first remained record (already read by the segment)
+     * @param from         position of the first remained record after its priority
+     * @param to           end of the records in the file
+     * @param nodes        number of the remained records
+     */
+    void addSegment(Path path, double headPriority, long from, long to, long nodes) throws IOException {
+        segmentParts.add(new SegmentPart(FileChannel.open(path, StandardOpenOption.READ), headPriority, from, to, nodes));
+    }
+
+    /**
+     * writes the checkpoint in the background thread
+     *
+     * @return the future of the write
+     */
+    public Future<?> writeInBackground(final Path file) {
+        return writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(file);
+                } catch (IOException e) {
+                    e.printStackTrace(); // the search goes on, the last checkpoint is still valid
+                }
+            }
+        });
+    }
+
+    /**
+     * writes the checkpoint to a temporary file and moves it on the given file
+     */
+    public void write(Path file) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4 * 4 + 8 + 2 + 2 * Math.max(incumbentPathLength, 0) + 4 * 8);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(GlobalVars.numberOfNodes);
+            header.putInt(GlobalVars.depotId);
+            header.putDouble(incumbentCost);
+            header.putShort((short) incumbentPathLength);
+            for (int i = incumbentPathLength - 1; i >= 0; i--) header.putShort(incumbentPath[i]);
+            header.putLong(numberOfBranchAndBoundNodes);
+            header.putLong(branchedNodes);
+            header.putLong(treeSize);
+            header.putLong(segmentParts.size());
+            header.flip();
+            writeFully(out, header);
+
+            for (ByteBuffer chunk : tree) {
+                chunk.flip();
+                writeFully(out, chunk);
+            }
+
+            for (SegmentPart part : segmentParts) {
+                ByteBuffer partHeader = ByteBuffer.allocate(3 * 8);
+                partHeader.putLong(part.nodes);
+                partHeader.putLong(part.to - part.from);
+                partHeader.putDouble(part.headPriority);
+                partHeader.flip();
+                writeFully(out, partHeader);
+                for (long position = part.from; position < part.to; )
+                    position += part.channel.transferTo(position, part.to - position, out);
+            }
+            out.force(false);
+        } finally {
+            close();
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * closes the files of the segments
+     */
+    public void close() {
+        for (SegmentPart part : segmentParts) {
+            try {
+                part.channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        segmentParts.clear();
+    }
+
+    /**
+     * reads a checkpoint, its frontier nodes are rebuilt and added to the given frontier
+     *
+     * @return the checkpoint with its answer node (the caller keeps its reference) and counters
+     */
+    public static Checkpoint load(Path file, Frontier frontier) throws IOException {
+        Checkpoint checkpoint = new Checkpoint();
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(channel, 4 * 4 + 8 + 2);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Not a branch and bound checkpoint: " + file);
+            if (header.getInt() != GlobalVars.numberOfNodes || header.getInt() != GlobalVars.depotId)
+                throw new IOException("Checkpoint " + file + " is made for another graph");
+            checkpoint.incumbentCost = header.getDouble();
+
+            int incumbentPathLength = header.getShort();
+            if (incumbentPathLength >= 0) {
+                ByteBuffer path = readFully(channel, 2 * incumbentPathLength);
+                BBNode node = BBNode.create(GlobalVars.depotId, null);
+                for (int i = 0; i < incumbentPathLength; i++) {
+                    BBNode child = BBNode.create(path.getShort(), node);
+                    node.release(); // the child keeps its parent
+                    node = child;
+                }
+                checkpoint.incumbent = node;
+            }
+
+            ByteBuffer counters = readFully(channel, 4 * 8);
+            checkpoint.numberOfBranchAndBoundNodes = counters.getLong();
+            checkpoint.branchedNodes = counters.getLong();
+            int treeSize = (int) counters.getLong();
+            long numberOfSegments = counters.getLong();
+
+            // the tree, every node keeps the reference of its creation until the end
+            BBNode[] nodes = new BBNode[treeSize];
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE - CHUNK_SIZE % TREE_ENTRY_SIZE);
+            buffer.limit(0);
+            for (int i = 0; i < treeSize; i++) {
+                if (!buffer.hasRemaining()) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), (long) (treeSize - i) * TREE_ENTRY_SIZE));
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer) < 0) throw new IOException("Unexpected end of checkpoint");
+                    }
+                    buffer.flip();
+                }
+                int parent = buffer.getInt();
+                nodes[i] = BBNode.create(buffer.getShort(), parent < 0 ? null : nodes[parent]);
+                int frontierState = buffer.getShort();
+                if (frontierState > 0) {
+                    if (frontierState > 1) nodes[i].startExpansion(frontierState - 2);
+                    nodes[i].retain(); // for the frontier
+                    frontier.add(nodes[i]);
+                }
+            }
+            for (BBNode node : nodes) node.release();
+
+            // the spilled segments go back to the disk as they are, so they don't need memory
+            for (long i = 0; i < numberOfSegments; i++) {
+                ByteBuffer partHeader = readFully(channel, 3 * 8);
+                long records = partHeader.getLong();
+                long bytes = partHeader.getLong();
+                frontier.addSegment(channel, partHeader.getDouble(), bytes, records);
+            }
+        } finally {
+            channel.close();
+        }
+        return checkpoint;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) out.write(buffer);
+    }
+
+    private static ByteBuffer readFully(FileChannel in, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) throw new IOException("Unexpected end of checkpoint");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * remained records of a spilled segment
+     */
+    private static class SegmentPart {
+        final FileChannel channel;
+        final double headPriority;
+        final long from;
+        final long to;
+        final long nodes;
+
+        SegmentPart(FileChannel channel, double headPriority, long from, long to, long nodes) {
+            this.channel = channel;
+            this.headPriority = headPriority;
+            this.from = from;
+            this.to = to;
+            this.nodes = nodes;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+import VRP.Graph.Graph;
+import VRP.Graph.Vertex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a multi-process branch and bound algorithm for VRP
+ * <p>
+ * the coordinator (this class) expands the top of the tree and hands out subtrees
+ * to DistributedWorker processes over local sockets. better answers of a worker are
+ * broadcast to the others. when a worker runs dry the coordinator gives it nodes
+ * of its pool, or steals some nodes of a busy worker for it. the search is finished
+ * when all workers are idle, the pool is empty and no steal is pending.
+ */
+public class DistributedBranchAndBound extends BranchAndBound {
+    private static final int INITIAL_NODES_PER_WORKER = 16;
+    private static final int MAX_WORK_NODES = 256;   // nodes of a WORK message
+    private static final int MIN_NODE_BUDGET = 64;   // nodes that a worker branches at least before asking for more
+
+    private final int numberOfWorkers;
+    private final String nodesFilePath;
+    private final String roadsFilePath;
+    private final short[] ids = new short[GlobalVars.numberOfNodes * 2 + 1];
+
+    private final Frontier pool = new Frontier("coordinator");   // nodes that are not given to any worker
+    private final LinkedBlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private int nextVictim;   // round robin index for the steals
+    private long freeNodeBudget;   // nodes of the node limit that are not given to any worker
+
+    /**
+     * @param graph           the preprocessed graph
+     * @param minimumCost     an upper bound for the answer (e.g. genetic algorithm answer)
+     * @param numberOfWorkers number of worker processes that are started on this machine
+     * @param nodesFilePath   nodes attribute table that the workers read the graph from
+     * @param roadsFilePath   roads attribute table that the workers read the graph from
+     */
+    public DistributedBranchAndBound(Graph graph, double minimumCost, int numberOfWorkers,
+                                     String nodesFilePath, String roadsFilePath) {
+        super(graph, minimumCost);
+        this.numberOfWorkers = numberOfWorkers;
+        this.nodesFilePath = nodesFilePath;
+        this.roadsFilePath = roadsFilePath;
+    }
+
+    /**
+     * starts the workers and coordinates them until the tree is explored or a limit is reached
+     * (the limits are checked with the last PROGRESS of the workers)
+     *
+     * @param depotName is name of the depot (node that contains vehicles)
+     * @param limits    time and node limits of the search
+     * @param listener  gets every better answer as soon as the coordinator receives it (can be null)
+     * @return best answer when the search stopped
+     */
+    @Override
+    public BBSolveResult solve(String depotName, BBSolveLimits limits, BBIncumbentListener listener) {
+        System.out.println("--------------------------");
+        System.out.println("Distributed branch and bound algorithm (" + numberOfWorkers + " workers)");
+        System.out.println("--------------------------");
+        this.listener = listener;
+        this.solveStartTime = System.nanoTime();
+        BBMetrics.reset();
+
+        BBSolveResult.Status status = null;
+        long branchedNodes = 0;
+        List<Process> processes = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, numberOfWorkers, InetAddress.getLoopbackAddress())) {
+            for (int i = 0; i < numberOfWorkers; i++) processes.add(startWorker(server.getLocalPort()));
+            for (int i = 0; i < numberOfWorkers; i++) connections.add(new Connection(i, server.accept()));
+            for (Connection connection : connections) connection.start();
+
+            // expand the top of the tree while the workers read the graph
+            Vertex depotVertex = graph.getVertexByName(depotName);
+            pool.add(BBNode.create(depotVertex.getId(), null));
+            while (!pool.isEmpty() && pool.size() < (long) INITIAL_NODES_PER_WORKER * numberOfWorkers) {
+                BBNode u = pool.poll();
+                if (!canBePruned(u)) {
+                    GlobalVars.numberOfBranchAndBoundNodes += branch(u, pool);
+                    branchedNodes++;
+                }
+                u.release();
+            }
+            broadcastIncumbent();
+
+            status = coordinate(limits, branchedNodes);
+            for (Connection connection : connections) branchedNodes += connection.branchedNodes;
+        } catch (IOException e) {
+            throw new IllegalStateException("Distributed branch and bound failed", e);
+        } finally {
+            for (Connection connection : connections) connection.close();
+            for (Process process : processes) process.destroy();
+        }
+        long elapsedMilliSecond = (System.nanoTime() - solveStartTime) / 1_000_000;
+
+        printWorkersStats();
+        BBSolveResult result = makeResult(status, branchedNodes, elapsedMilliSecond);
+        pool.clear();
+        return result;
+    }
+
+    /**
+     * handles the events of the workers until the search is finished
+     *
+     * @return the limit that stopped the search or null if the tree is explored
+     */
+    private BBSolveResult.Status coordinate(BBSolveLimits limits, long coordinatorBranchedNodes) throws IOException {
+        int pendingSteals = 0;
+        freeNodeBudget = Math.max(0, limits.nodeLimit - coordinatorBranchedNodes);
+        while (true) {
+            long reportedNodes = coordinatorBranchedNodes;
+            for (Connection connection : connections) reportedNodes += connection.branchedNodes;
+            BBSolveResult.Status status = limits.check(solveStartTime, reportedNodes, minimumCost, getGlobalLowerBound());
+            if (status != null) {
+                stopWorkers();
+                return status;
+            }
+
+            Event event;
+            try {
+                event = events.poll(10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopWorkers();
+                return BBSolveResult.Status.TIME_LIMIT;
+            }
+
+            if (event != null) {
+                Connection connection = event.connection;
+                if (event.type == DistributedProtocol.IDLE) {
+                    // the rest of its budget is free, it can't branch until its next WORK
+                    freeNodeBudget += connection.nodeBudget - event.branchedNodes;
+                    connection.nodeBudget = event.branchedNodes;
+                    connection.branchedNodes = event.branchedNodes;
+                    connection.minimumPriority = GlobalVars.INF;
+                    connection.idle = true;
+                } else if (event.type == DistributedProtocol.PROGRESS) {
+                    connection.branchedNodes = event.branchedNodes;
+                    connection.minimumPriority = event.minimumPriority;
+                } else if (event.type == DistributedProtocol.ANSWER) {
+                    if (event.cost < minimumCost) {
+                        updateTheAnswer(DistributedProtocol.replay(event.paths[0]));
+                        broadcastIncumbent();
+                    }
+                } else if (event.type == DistributedProtocol.NODES) {
+                    connection.stealPending = false;
+                    pendingSteals--;
+                    // the nodes passed the dominance check of the worker already
+                    for (short[] path : event.paths) pool.add(DistributedProtocol.replay(path));
+                } else {
+                    throw new IOException("Worker #" + connection.id + " is disconnected");
+                }
+            }
+
+            // more nodes for the workers that wait at their node budget
+            for (Connection connection : connections) {
+                if (!connection.idle && connection.branchedNodes >= connection.nodeBudget && freeNodeBudget > 0)
+                    connection.sendNodeBudget(connection.nodeBudget + takeNodeBudget());
+            }
+
+            // give the pool to the idle workers, or steal for them
+            int idleWorkers = 0;
+            for (Connection connection : connections) if (connection.idle) idleWorkers++;
+            for (Connection connection : connections) {
+                if (!connection.idle || pool.isEmpty()) continue;
+                int count = (int) Math.min(MAX_WORK_NODES, Math.max(1, pool.size() / idleWorkers));
+                if (connection.sendWork(count)) idleWorkers--;
+            }
+            if (idleWorkers > 0 && pool.isEmpty() && pendingSteals == 0) {
+                for (int i = 0; i < connections.size(); i++) {
+                    Connection victim = connections.get(nextVictim++ % connections.size());
+                    if (!victim.idle && !victim.stealPending) {
+                        victim.sendStealRequest();
+                        pendingSteals++;
+                        break;
+                    }
+                }
+            }
+
+            // finished
+            if (idleWorkers == connections.size() && pool.isEmpty() && pendingSteals == 0) {
+                stopWorkers();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @return a share of the free node budget for a worker (at least MIN_NODE_BUDGET nodes if there are)
+     */
+    private long takeNodeBudget() {
+        long share = Math.max(Math.min(freeNodeBudget, MIN_NODE_BUDGET), freeNodeBudget / connections.size());
+        freeNodeBudget -= share;
+        return share;
+    }
+
+    /**
+     * stops the workers and waits for their stats
+     */
+    private void stopWorkers() throws IOException {
+        for (Connection connection : connections) connection.send(DistributedProtocol.STOP);
+        int running = connections.size();
+        while (running > 0) {
+            Event event;
+            try {
+                event = events.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (event.type == DistributedProtocol.DONE) running--;
+            else if (event.type == DistributedProtocol.ANSWER && event.cost < minimumCost)
+                updateTheAnswer(DistributedProtocol.replay(event.paths[0]));
+            else if (event.type == 0) running--;  // disconnected
+        }
+    }
+
+    /**
+     * @return minimum priority of the pool and of the frontiers of the busy workers (by their last report),
+     * the frontier of a worker only gets nodes of higher priorities until it is idle
+     * and the stolen nodes are in the pool before the next report of their worker
+     */
+    @Override
+    protected double getGlobalLowerBound() {
+        double minimum = pool.getMinimumPriority();
+        for (Connection connection : connections) minimum = Math.min(minimum, connection.minimumPriority);
+        return minimum;
+    }
+
+    @Override
+    protected long getFrontierSize() {
+        return pool.size();
+    }
+
+    /**
+     * sends the cost of the best answer to all workers
+     */
+    private void broadcastIncumbent() throws IOException {
+        for (Connection connection : connections) connection.sendIncumbent(minimumCost);
+    }
+
+    /**
+     * starts a worker process on this machine with the class path and the settings of this process
+     */
+    private Process startWorker(int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>(Arrays.asList(java, "-cp", System.getProperty("java.class.path"),
+                DistributedWorker.class.getName(), String.valueOf(port), nodesFilePath, roadsFilePath));
+        command.addAll(DistributedProtocol.writeSettings());
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    /**
+     * prints how many nodes each worker branched
+     */
+    private void printWorkersStats() {
+        System.out.println();
+        for (Connection connection : connections) {
+            System.out.printf("Worker #%d,\t\tBranched nodes: %d,\t\tAdded nodes: %d,\t\tReceived nodes: %d,\t\t"
+                            + "Given back nodes: %d\n", connection.id, connection.branchedNodes,
+                    connection.addedNodes, connection.receivedNodes, connection.givenBackNodes);
+            GlobalVars.numberOfBranchAndBoundNodes += (int) connection.addedNodes;
+        }
+    }
+
+    /**
+     * a message of a worker (type 0 when the worker is disconnected)
+     */
+    private static class Event {
+        final Connection connection;
+        final byte type;
+        double cost;          // for ANSWER
+        short[][] paths;      // for ANSWER (one path) and NODES
+        long branchedNodes;   // for IDLE and PROGRESS
+        double minimumPriority = GlobalVars.INF;   // for PROGRESS
+
+        Event(Connection connection, byte type) {
+            this.connection = connection;
+            this.type = type;
+        }
+    }
+
+    /**
+     * connection of a worker, a thread reads its messages into the events
+     * and the coordinator thread writes to it
+     */
+    private class Connection implements Runnable {
+        final int id;
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        boolean idle;
+        boolean stealPending;
+        volatile double minimumPriority = GlobalVars.INF;   // lower bound of the frontier of the worker
+        long nodeBudget;   // see DistributedProtocol
+
+        // stats (updated by the coordinator thread and by the reader thread at DONE)
+        volatile long branchedNodes;
+        volatile long addedNodes;
+        long receivedNodes;
+        long givenBackNodes;
+
+        Connection(int id, Socket socket) throws IOException {
+            this.id = id;
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            if (in.readByte() != DistributedProtocol.HELLO
+                    || in.readInt() != GlobalVars.numberOfNodes
+                    || in.readLong() != DistributedProtocol.getGraphFingerprint())
+                throw new IOException("Worker #" + id + " has another graph");
+        }
+
+        void start() {
+            Thread reader = new Thread(this, "bb-distributed-connection-" + id);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    Event event = new Event(this, type);
+                    if (type == DistributedProtocol.IDLE) {
+                        event.branchedNodes = in.readLong();
+                    } else if (type == DistributedProtocol.PROGRESS) {
+                        event.branchedNodes = in.readLong();
+                        event.minimumPriority = in.readDouble();
+                    } else if (type == DistributedProtocol.ANSWER) {
+                        event.cost = in.readDouble();
+                        event.paths = new short[][]{DistributedProtocol.readPath(in)};
+                    } else if (type == DistributedProtocol.NODES) {
+                        event.paths = new short[in.readInt()][];
+                        for (int i = 0; i < event.paths.length; i++) event.paths[i] = DistributedProtocol.readPath(in);
+                        givenBackNodes += event.paths.length;
+                    } else if (type == DistributedProtocol.DONE) {
+                        branchedNodes = in.readLong();
+                        addedNodes = in.readLong();
+                        events.add(event);
+                        return;
+                    }
+                    events.add(event);
+                }
+            } catch (IOException e) {
+                events.add(new Event(this, (byte) 0));
+            }
+        }
+
+        /**
+         * sends the best nodes of the pool that can't be pruned
+         *
+         * @return true if any node is sent
+         */
+        boolean sendWork(int count) throws IOException {
+            if (freeNodeBudget == 0) return false;
+            List<BBNode> nodes = new ArrayList<>();
+            while (nodes.size() < count && !pool.isEmpty()) {
+                BBNode node = pool.poll();
+                if (canBePruned(node)) node.release();
+                else nodes.add(node);
+            }
+            if (nodes.isEmpty()) return false;
+
+            // the worker is idle, so its frontier is the given nodes until its next report
+            minimumPriority = nodes.get(0).getPriority();
+            nodeBudget += takeNodeBudget();
+            out.writeByte(DistributedProtocol.WORK);
+            out.writeLong(nodeBudget);
+            out.writeInt(nodes.size());
+            for (BBNode node : nodes) {
+                DistributedProtocol.writePath(out, node, ids);
+                node.release();
+            }
+            out.flush();
+            receivedNodes += nodes.size();
+            idle = false;
+            return true;
+        }
+
+        void sendNodeBudget(long budget) throws IOException {
+            out.writeByte(DistributedProtocol.BUDGET);
+            out.writeLong(budget);
+            out.flush();
+            nodeBudget = budget;
+        }
+
+        void sendStealRequest() throws IOException {
+            send(DistributedProtocol.STEAL);
+            stealPending = true;
+        }
+
+        void sendIncumbent(double cost) throws IOException {
+            out.writeByte(DistributedProtocol.INCUMBENT);
+            out.writeDouble(cost);
+            out.flush();
+        }
+
+        void send(byte type) throws IOException {
+            out.writeByte(type);
+            out.flush();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * messages between DistributedBranchAndBound (coordinator) and DistributedWorker
+ * <p>
+ * a message is a type byte and its fields, a node is sent as its path:
+ * length (short), vertex ids from the root (short each) and the next candidate of the node
+ * (short, -1 if it isn't expanding, see BBNode.startExpansion), and is rebuilt by replaying it.
+ * <p>
+ * the node budget is the number of nodes that a worker can branch since it started (for the node limit),
+ * a worker that reaches it sends a PROGRESS and waits for a BUDGET.
+ */
+class DistributedProtocol {
+    // worker -> coordinator
+    static final byte HELLO = 1;       // number of nodes (int), fingerprint of the graph (long)
+    static final byte IDLE = 2;        // frontier is empty, branched nodes so far (long)
+    static final byte ANSWER = 3;      // a better answer: cost (double), path
+    static final byte NODES = 4;       // answer of a STEAL: count (int), paths
+    static final byte DONE = 5;        // answer of a STOP: branched nodes (long), added nodes (long)
+    static final byte PROGRESS = 6;    // sent while searching: branched nodes (long), minimum priority of the frontier (double)
+
+    // coordinator -> worker
+    static final byte INCUMBENT = 11;  // cost of the best answer (double)
+    static final byte WORK = 12;       // subtrees to search: node budget (long), count (int), paths
+    static final byte STEAL = 13;      // give some of your frontier nodes back
+    static final byte STOP = 14;       // search is finished
+    static final byte BUDGET = 15;     // more nodes for a busy worker: node budget (long)
+
+    /**
+     * @return the settings of the search and the graph that a worker process gets as its arguments (see readSettings)
+     */
+    static List<String> writeSettings() {
+        return Arrays.asList(
+                String.valueOf(GlobalVars.useLazyExpansion),
+                String.valueOf(GlobalVars.useSymmetryBreaking),
+                String.valueOf(GlobalVars.useLagrangianBound),
+                String.valueOf(GlobalVars.dominanceStoreSize),
+                String.valueOf(GlobalVars.diveFrequency),
+                String.valueOf(GlobalVars.useLocalSearch),
+                String.valueOf(GlobalVars.frontierMemoryBudget),
+                GlobalVars.frontierSpillDirectory,
+                GlobalVars.contractionHierarchyFilePath == null ? "" : GlobalVars.contractionHierarchyFilePath,
+                String.valueOf(GlobalVars.shortestPathSearchRadius));
+    }
+
+    /**
+     * sets the global variables of the settings that writeSettings made
+     *
+     * @param from index of the first setting in the arguments
+     */
+    static void readSettings(String[] args, int from) {
+        GlobalVars.useLazyExpansion = Boolean.parseBoolean(args[from]);
+        GlobalVars.useSymmetryBreaking = Boolean.parseBoolean(args[from + 1]);
+        GlobalVars.useLagrangianBound = Boolean.parseBoolean(args[from + 2]);
+        GlobalVars.dominanceStoreSize = Integer.parseInt(args[from + 3]);
+        GlobalVars.diveFrequency = Integer.parseInt(args[from + 4]);
+        GlobalVars.useLocalSearch = Boolean.parseBoolean(args[from + 5]);
+        GlobalVars.frontierMemoryBudget = Long.parseLong(args[from + 6]);
+        GlobalVars.frontierSpillDirectory = args[from + 7];
+        GlobalVars.contractionHierarchyFilePath = args[from + 8].isEmpty() ? null : args[from + 8];
+        GlobalVars.shortestPathSearchRadius = Double.parseDouble(args[from + 9]);
+    }
+
+    /**
+     * @return a hash of the vertex names by their id, the coordinator and the workers must have the same one
+     */
+    static long getGraphFingerprint() {
+        long hash = GlobalVars.numberOfNodes;
+        for (int i = 0; i < GlobalVars.numberOfNodes; i++)
+            hash = hash * 1_000_003 + GlobalVars.bbVertices[i].name.hashCode();
+        return hash;
+    }
+
+    /**
+     * writes the path of the node
+     *
+     * @param ids a buffer with at least the length of the path
+     */
+    static void writePath(DataOutputStream out, BBNode node, short[] ids) throws IOException {
+        int length = Frontier.Segment.getReversedPath(node, ids);
+        out.writeShort(length);
+        for (int i = length - 1; i >= 0; i--) out.writeShort(ids[i]);
+        out.writeShort(node.nextCandidate);
+    }
+
+    /**
+     * @return vertex ids of a path (from the root) and the next candidate of its node as the last item
+     */
+    static short[] readPath(DataInputStream in) throws IOException {
+        short[] path = new short[in.readShort() + 1];
+        for (int i = 0; i < path.length; i++) path[i] = in.readShort();
+        return path;
+    }
+
+    /**
+     * @return the node of a path (see readPath), made by replaying the path from the root
+     */
+    static BBNode replay(short[] path) {
+        BBNode node = BBNode.create(GlobalVars.depotId, null);
+        for (int i = 0; i < path.length - 1; i++) {
+            BBNode child = BBNode.create(path[i], node);
+            node.release(); // the child keeps its parent
+            node = child;
+        }
+        if (path[path.length - 1] >= 0) node.startExpansion(path[path.length - 1]);
+        return node;
+    }
+}
@@ -0,0 +1,237 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.Algorithms.Dijkstra.Dijkstra;
+import VRP.GlobalVars;
+import VRP.Graph.Graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * a worker process of the distributed branch and bound (see DistributedBranchAndBound)
+ * it searches the subtrees that the coordinator gives, sends its better answers
+ * and gives some of its nodes back when the coordinator asks for them
+ */
+public class DistributedWorker extends BranchAndBound {
+    private static final int MAX_STOLEN_NODES = 1024;
+    private static final int PROGRESS_PERIOD = 64;   // branched nodes between two PROGRESS messages
+
+    private final DataInputStream in;
+    private final DataOutputStream out;       // only written by the search thread
+    private final LinkedBlockingQueue<Message> inbox = new LinkedBlockingQueue<>();
+    private volatile double incumbentCost;    // best answer of all workers
+    private final Frontier frontier = new Frontier("distributed-worker");
+    private final short[] ids = new short[GlobalVars.numberOfNodes * 2 + 1];
+
+    /**
+     * @param graph  the preprocessed graph (global variables must be set)
+     * @param socket connection to the coordinator
+     */
+    public DistributedWorker(Graph graph, Socket socket) throws IOException {
+        super(graph, GlobalVars.INF);
+        this.incumbentCost = GlobalVars.INF;
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * runs a worker process
+     *
+     * @param args port of the coordinator on this machine, nodes file path, roads file path
+     *             and the settings of the coordinator (see DistributedProtocol.writeSettings)
+     */
+    public static void main(String[] args) throws IOException {
+        DistributedProtocol.readSettings(args, 3);
+        Graph originalGraph = Graph.buildAGraphFromAttributeTables(args[1], args[2]);
+        Dijkstra dijkstra = new Dijkstra(originalGraph);
+        if (GlobalVars.contractionHierarchyFilePath != null)
+            dijkstra.useContractionHierarchy(GlobalVars.contractionHierarchyFilePath);
+        Graph preprocessedGraph = dijkstra.makeShortestPathGraph();
+        GlobalVars.setTheGlobalVariables(preprocessedGraph);
+
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+        try {
+            new DistributedWorker(preprocessedGraph, socket).work();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * searches the given subtrees until the coordinator stops the worker
+     */
+    public void work() throws IOException {
+        out.writeByte(DistributedProtocol.HELLO);
+        out.writeInt(GlobalVars.numberOfNodes);
+        out.writeLong(DistributedProtocol.getGraphFingerprint());
+        out.flush();
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readMessages();
+            }
+        }, "bb-distributed-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long branchedNodes = 0;
+        long addedNodes = 0;
+        long nodeBudget = 0;
+        boolean idle = false;
+        while (true) {
+            Message message = inbox.poll();
+            if (message == null && (frontier.isEmpty() || branchedNodes >= nodeBudget)) {
+                if (!idle && frontier.isEmpty()) {
+                    out.writeByte(DistributedProtocol.IDLE);
+                    out.writeLong(branchedNodes);
+                    out.flush();
+                    idle = true;
+                }
+                try {
+                    message = inbox.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            if (message != null) {
+                if (message.type == DistributedProtocol.STOP) break;
+                if (message.type == DistributedProtocol.STEAL) giveNodes();
+                if (message.type == DistributedProtocol.BUDGET) nodeBudget = message.nodeBudget;
+                if (message.type == DistributedProtocol.WORK) {
+                    for (short[] path : message.paths) frontier.add(DistributedProtocol.replay(path));
+                    nodeBudget = message.nodeBudget;
+                    idle = false;
+                }
+                continue;
+            }
+
+            BBNode u = frontier.poll();
+            if (!canBePruned(u)) {
+                if (GlobalVars.diveFrequency > 0 && branchedNodes % GlobalVars.diveFrequency == 0) dive(u);
+                addedNodes += branch(u, frontier);
+                branchedNodes++;
+                BBMetrics.nodesBranched.increment();
+                if (branchedNodes % PROGRESS_PERIOD == 0 || branchedNodes == nodeBudget) sendProgress(branchedNodes);
+            }
+            u.release();
+        }
+
+        out.writeByte(DistributedProtocol.DONE);
+        out.writeLong(branchedNodes);
+        out.writeLong(addedNodes);
+        out.flush();
+        frontier.clear();
+    }
+
+    /**
+     * sends the branched nodes and the lower bound of the frontier, so the coordinator
+     * can check the node limit and the gap while the worker is busy
+     */
+    private void sendProgress(long branchedNodes) throws IOException {
+        out.writeByte(DistributedProtocol.PROGRESS);
+        out.writeLong(branchedNodes);
+        out.writeDouble(frontier.getMinimumPriority());
+        out.flush();
+    }
+
+    /**
+     * sends the best half of the frontier (at most MAX_STOLEN_NODES) to the coordinator
+     */
+    private void giveNodes() throws IOException {
+        int count = (int) Math.min(frontier.size() / 2, MAX_STOLEN_NODES);
+        out.writeByte(DistributedProtocol.NODES);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            BBNode node = frontier.poll();
+            DistributedProtocol.writePath(out, node, ids);
+            node.release();
+        }
+        out.flush();
+    }
+
+    /**
+     * reads the messages of the coordinator (on the reader thread), the incumbent is
+     * used at once and the other messages are handled by the search thread
+     */
+    private void readMessages() {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == DistributedProtocol.INCUMBENT) {
+                    lowerIncumbentCost(in.readDouble());
+                    continue;
+                }
+
+                Message message = new Message(type);
+                if (type == DistributedProtocol.BUDGET) message.nodeBudget = in.readLong();
+                if (type == DistributedProtocol.WORK) {
+                    message.nodeBudget = in.readLong();
+                    message.paths = new short[in.readInt()][];
+                    for (int i = 0; i < message.paths.length; i++) message.paths[i] = DistributedProtocol.readPath(in);
+                }
+                inbox.add(message);
+                if (type == DistributedProtocol.STOP) return;
+            }
+        } catch (IOException e) {
+            // the coordinator is gone
+            inbox.add(new Message(DistributedProtocol.STOP));
+        }
+    }
+
+    /**
+     * @return true if the cost is better than the incumbent and replaced it
+     */
+    private synchronized boolean lowerIncumbentCost(double cost) {
+        if (cost >= incumbentCost) return false;
+        incumbentCost = cost;
+        GlobalVars.minimumValue = cost;
+        return true;
+    }
+
+    @Override
+    protected double getMinimumCost() {
+        return incumbentCost;
+    }
+
+    /**
+     * sends the answer to the coordinator, the worker only keeps its cost
+     */
+    @Override
+    protected void updateTheAnswer(BBNode newNode) {
+        try {
+            if (lowerIncumbentCost(newNode.getCost())) {
+                out.writeByte(DistributedProtocol.ANSWER);
+                out.writeDouble(newNode.getCost());
+                DistributedProtocol.writePath(out, newNode, ids);
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't send the answer to the coordinator", e);
+        } finally {
+            newNode.release();
+        }
+    }
+
+    /**
+     * a message of the coordinator for the search thread
+     */
+    private static class Message {
+        final byte type;
+        short[][] paths;   // for WORK
+        long nodeBudget;   // for WORK and BUDGET
+
+        Message(byte type) {
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * memo table of the partial routes that are already in the tree
+ * <p>
+ * two nodes on the same vertex with the same serviced customers and the same number
+ * of used vehicles have the same possible futures, and the future cost is not better
+ * with more cost, less remained capacity or more elapsed time on the current route.
+ * with the symmetry breaking a larger first customer of the route also limits the next routes.
+ * so a node is dominated if another node of its state has all of them at least as good.
+ * <p>
+ * for every state the non dominated (pareto) labels are kept, states are
+ * evicted in LRU order when the store is full. the store is split into
+ * stripes with their own locks for the parallel branch and bound.
+ */
+public class DominanceStore {
+    private static final int NUMBER_OF_STRIPES = 16; // must match the shift in isDominated
+    private static final int MAX_LABELS = 8;   // labels of a state, new labels are ignored if it is full
+
+    private final Stripe[] stripes = new Stripe[NUMBER_OF_STRIPES];
+
+    /**
+     * @param maxStates maximum number of states kept in the store
+     */
+    public DominanceStore(int maxStates) {
+        for (int i = 0; i < NUMBER_OF_STRIPES; i++)
+            stripes[i] = new Stripe(Math.max(1, maxStates / NUMBER_OF_STRIPES));
+    }
+
+    /**
+     * checks if the node is dominated by a node in the store,
+     * if it is not, the node is added to the store
+     *
+     * @return true if the node is dominated and must be pruned
+     */
+    public boolean isDominated(BBNode node) {
+        int hash = State.hash(node);
+        Stripe stripe = stripes[hash >>> 28]; // high bits, the low ones are used by the map
+        synchronized (stripe) {
+            return stripe.isDominated(node, hash);
+        }
+    }
+
+    /**
+     * @return number of nodes pruned by the store
+     */
+    public long getHits() {
+        long hits = 0;
+        for (Stripe stripe : stripes) synchronized (stripe) {
+            hits += stripe.hits;
+        }
+        return hits;
+    }
+
+    /**
+     * @return number of states evicted from the store
+     */
+    public long getEvictions() {
+        long evictions = 0;
+        for (Stripe stripe : stripes) synchronized (stripe) {
+            evictions += stripe.evictions;
+        }
+        return evictions;
+    }
+
+    /**
+     * @return number of states in the store
+     */
+    public long getSize() {
+        long size = 0;
+        for (Stripe stripe : stripes) synchronized (stripe) {
+            size += stripe.states.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return stats of the store
+     */
+    public String getPrintStatsString() {
+        long lookups = 0;
+        for (Stripe stripe : stripes) synchronized (stripe) {
+            lookups += stripe.lookups;
+        }
+        return "Dominance store -> Lookups: " + lookups + ", Hits: " + getHits()
+                + ", Evictions: " + getEvictions() + ", States: " + getSize();
+    }
+
+    /**
+     * a part of the store with its own LRU map
+     */
+    private static class Stripe {
+        final LinkedHashMap<State, Labels> states;
+        final State probe = new State();   // reused for the lookups
+
+        // for reporting
+        long lookups;
+        long hits;
+        long evictions;
+
+        Stripe(final int maxStates) {
+            states = new LinkedHashMap<State, Labels>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<State, Labels> eldest) {
+                    if (size() <= maxStates) return false;
+                    evictions++;
+                    return true;
+                }
+            };
+        }
+
+        boolean isDominated(BBNode node, int hash) {
+            lookups++;
+            probe.set(node, hash);
+            Labels labels = states.get(probe);
+
+            if (labels == null) {
+                State state = new State();
+                state.set(node, hash);
+                if (node.servicedNodesOverflow != null)
+                    state.servicedNodesOverflow = node.servicedNodesOverflow.clone();
+                labels = new Labels();
+                labels.add(node);
+                states.put(state, labels);
+                return false;
+            }
+
+            if (labels.dominates(node)) {
+                hits++;
+                return true;
+            }
+            labels.removeDominatedBy(node);
+            labels.add(node);
+            return false;
+        }
+    }
+
+    /**
+     * key of the store: vertex, serviced customers and used vehicles
+     */
+    private static class State {
+        int vertexId;
+        int vehicleUsed;
+        long servicedNodes;
+        long[] servicedNodesOverflow;
+        int hash;
+
+        static int hash(BBNode node) {
+            long h = node.servicedNodes * 0x9E3779B97F4A7C15L;
+            if (node.servicedNodesOverflow != null) h ^= Arrays.hashCode(node.servicedNodesOverflow);
+            h = 31 * (31 * h + node.vertexId) + node.vehicleUsed;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        void set(BBNode node, int hash) {
+            this.vertexId = node.vertexId;
+            this.vehicleUsed = node.vehicleUsed;
+            this.servicedNodes = node.servicedNodes;
+            this.servicedNodesOverflow = node.servicedNodesOverflow;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            State state = (State) o;
+            return vertexId == state.vertexId
+                    && vehicleUsed == state.vehicleUsed
+                    && servicedNodes == state.servicedNodes
+                    && Arrays.equals(servicedNodesOverflow, state.servicedNodesOverflow);
+        }
+    }
+
+    /**
+     * pareto labels of a state: cost, remained capacity, elapsed time and first customer of the route
+     */
+    private static class Labels {
+        double[] costs = new double[2];
+        int[] remainedCapacities = new int[2];
+        double[] timesElapsed = new double[2];
+        int[] routeFirstCustomers = new int[2];
+        int size;
+
+        /**
+         * @return first customer of the route if it limits the next routes, 0 otherwise
+         */
+        static int getRouteFirstCustomer(BBNode node) {
+            return GlobalVars.useSymmetryBreaking ? node.routeFirstCustomer : 0;
+        }
+
+        boolean dominates(BBNode node) {
+            for (int i = 0; i < size; i++) {
+                if (costs[i] <= node.getCost()
+                        && remainedCapacities[i] >= node.remainedCapacity
+                        && timesElapsed[i] <= node.curTimeElapsed
+                        && routeFirstCustomers[i] <= getRouteFirstCustomer(node)) return true;
+            }
+            return false;
+        }
+
+        void removeDominatedBy(BBNode node) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (node.getCost() <= costs[i]
+                        && node.remainedCapacity >= remainedCapacities[i]
+                        && node.curTimeElapsed <= timesElapsed[i]
+                        && getRouteFirstCustomer(node) <= routeFirstCustomers[i]) {
+                    size--;
+                    costs[i] = costs[size];
+                    remainedCapacities[i] = remainedCapacities[size];
+                    timesElapsed[i] = timesElapsed[size];
+                    routeFirstCustomers[i] = routeFirstCustomers[size];
+                }
+            }
+        }
+
+        void add(BBNode node) {
+            if (size == MAX_LABELS) return;
+            if (size == costs.length) {
+                costs = Arrays.copyOf(costs, size * 2);
+                remainedCapacities = Arrays.copyOf(remainedCapacities, size * 2);
+                timesElapsed = Arrays.copyOf(timesElapsed, size * 2);
+                routeFirstCustomers = Arrays.copyOf(routeFirstCustomers, size * 2);
+            }
+            costs[size] = node.getCost();
+            remainedCapacities[size] = node.remainedCapacity;
+            timesElapsed[size] = node.curTimeElapsed;
+            routeFirstCustomers[size] = getRouteFirstCustomer(node);
+            size++;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * best first frontier of the branch and bound tree with a memory budget
+ * <p>
+ * when the in memory nodes exceed the budget, the worst half of them are written
+ * (sorted by priority) to a segment file and released. segments are read back in
+ * priority order when their best node is better than the best in memory node.
+ * a spilled node is stored as its path (vertex ids from the root) and rebuilt by replaying it
+ * (an expanding node also keeps the index of its next child, see BBNode.startExpansion).
+ * <p>
+ * the budget counts the ancestors that the nodes keep alive through their parents too: siblings share them,
+ * but a reloaded node has its own copies. the ratio of live nodes (BBNodePool) to frontier nodes is measured
+ * after every reload and every 1/16 of the budget adds, and every in memory node is counted that many times.
+ */
+public class Frontier {
+    // bytes of a node and its slot in the queue (measured ~165 with 10 customers), the arrays of
+    // lazy expansion, Lagrangian multipliers and the overflow of more than 64 customers are not counted
+    public static final int ESTIMATED_NODE_SIZE = 192;
+    private static final LongAdder nodesInFrontiers = new LongAdder(); // in memory nodes of all frontiers
+
+    private static final Comparator<BBNode> byPriority = new Comparator<BBNode>() {
+        @Override
+        public int compare(BBNode u, BBNode v) {
+            return Double.compare(u.getPriority(), v.getPriority());
+        }
+    };
+
+    private final PriorityQueue<BBNode> memory = new PriorityQueue<>(10, byPriority);
+    private final int maxNodesInMemory;
+    private final int checkPeriod; // adds between the measures of the live nodes per node
+    private final String name;
+    private final List<Segment> segments = new ArrayList<>();
+    private boolean spillingEnabled = true;
+    private double liveNodesPerNode = 1; // the node and the ancestors it keeps alive
+    private int addsSinceCheck;
+
+    // for reporting
+    private long spilledNodes;
+    private long spilledBytes;
+    private long reloadedNodes;
+    private int numberOfSegments;
+
+    /**
+     * constructor with the budget in GlobalVars
+     */
+    public Frontier(String name) {
+        this(name, GlobalVars.frontierMemoryBudget);
+    }
+
+    /**
+     * @param name         name of the frontier, used for the segment files
+     * @param memoryBudget bytes that in memory nodes can use
+     */
+    public Frontier(String name, long memoryBudget) {
+        this.name = name;
+        this.maxNodesInMemory = (int) Math.max(16, Math.min(Integer.MAX_VALUE, memoryBudget / ESTIMATED_NODE_SIZE));
+        this.checkPeriod = Math.min(1024, maxNodesInMemory / 16 + 1);
+    }
+
+    /**
+     * adds a node to the frontier (the frontier keeps the reference of the node)
+     */
+    public synchronized void add(BBNode node) {
+        memory.add(node);
+        nodesInFrontiers.increment();
+        if (++addsSinceCheck >= checkPeriod) updateLiveNodesPerNode();
+        if (isOverBudget()) spill();
+    }
+
+    /**
+     * @return the best node of the frontier or null if it's empty
+     */
+    public synchronized BBNode poll() {
+        Segment segment = getBestSegment();
+        if (segment != null && (memory.isEmpty() || segment.headPriority < memory.peek().getPriority()))
+            reload(segment);
+        BBNode node = memory.poll();
+        if (node != null) nodesInFrontiers.decrement();
+        return node;
+    }
+
+    /**
+     * @return priority of the best node in the frontier (INF if it's empty)
+     */
+    public synchronized double getMinimumPriority() {
+        double minimum = memory.isEmpty() ? GlobalVars.INF : memory.peek().getPriority();
+        Segment segment = getBestSegment();
+        if (segment != null) minimum = Math.min(minimum, segment.headPriority);
+        return minimum;
+    }
+
+    /**
+     * @return number of nodes in memory and on disk
+     */
+    public synchronized long size() {
+        long size = memory.size();
+        for (Segment segment : segments) size += segment.remainedNodes;
+        return size;
+    }
+
+    /**
+     * @return true if there is no node in the frontier
+     */
+    public synchronized boolean isEmpty() {
+        return memory.isEmpty() && segments.isEmpty();
+    }
+
+    /**
+     * releases all nodes and deletes the segment files
+     */
+    public synchronized void clear() {
+        nodesInFrontiers.add(-memory.size());
+        while (!memory.isEmpty()) memory.poll().release();
+        for (Segment segment : segments) segment.close();
+        segments.clear();
+    }
+
+    /**
+     * writes the worst half of in memory nodes to a new segment
+     */
+    private void spill() {
+        BBNode[] nodes = memory.toArray(new BBNode[memory.size()]);
+        Arrays.sort(nodes, byPriority);
+        int keep = nodes.length / 2;
+
+        Segment segment;
+        try {
+            segment = Segment.write(getSegmentPath(), nodes, keep, nodes.length);
+        } catch (IOException e) {
+            e.printStackTrace();
+            spillingEnabled = false; // go on with the memory
+            return;
+        }
+
+        memory.clear();
+        for (int i = 0; i < keep; i++) memory.add(nodes[i]); // sorted input, so every add is O(1)
+        for (int i = keep; i < nodes.length; i++) nodes[i].release();
+        nodesInFrontiers.add(keep - nodes.length);
+
+        segments.add(segment);
+        numberOfSegments++;
+        spilledNodes += nodes.length - keep;
+        spilledBytes += segment.size;
+    }
+
+    /**
+     * reads a batch of nodes of the segment into memory (a batch is an eighth of the budget with the ancestors)
+     */
+    private void reload(Segment segment) {
+        int batchSize = Math.max(1, maxNodesInMemory / 8);
+        try {
+            for (int i = 0; i < batchSize && segment.remainedNodes > 0; ) {
+                BBNode node = segment.readNode();
+                memory.add(node);
+                nodesInFrontiers.increment();
+                reloadedNodes++;
+                for (; node != null; node = node.parent) i++;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't read frontier segment " + segment.path, e);
+        }
+        updateLiveNodesPerNode();
+        if (isOverBudget()) spill(); // polls can reload without adding when the children are pruned
+        if (segment.remainedNodes == 0) {
+            segment.close();
+            segments.remove(segment);
+        }
+    }
+
+    /**
+     * @return true if the in memory nodes and their ancestors are more than the budget
+     */
+    private boolean isOverBudget() {
+        return memory.size() * liveNodesPerNode > maxNodesInMemory && memory.size() > 16 && spillingEnabled;
+    }
+
+    /**
+     * measures the live nodes per in memory node of the frontiers
+     */
+    private void updateLiveNodesPerNode() {
+        addsSinceCheck = 0;
+        long frontierNodes = nodesInFrontiers.sum();
+        liveNodesPerNode = frontierNodes <= 0 ? 1 : Math.max(1, (double) BBNodePool.getLiveNodes() / frontierNodes);
+    }
+
+    /**
+     * @return the segment with best head node
+     */
+    private Segment getBestSegment() {
+        Segment best = null;
+        for (Segment segment : segments) {
+            if (best == null || segment.headPriority < best.headPriority) best = segment;
+        }
+        return best;
+    }
+
+    /**
+     * @return a new empty file for a segment, its name is unique among the processes that share the directory
+     */
+    private Path getSegmentPath() throws IOException {
+        return Files.createTempFile(Paths.get(GlobalVars.frontierSpillDirectory), "bb-" + name + "-", ".seg");
+    }
+
+    /**
+     * adds sorted records of spilled nodes (of a checkpoint) as a new segment, they are copied to a segment file
+     *
+     * @param in           channel positioned on the record after the head priority
+     * @param headPriority priority of the first record
+     * @param bytes        bytes of the records after the head priority
+     * @param nodes        number of the records
+     */
+    synchronized void addSegment(FileChannel in, double headPriority, long bytes, long nodes) throws IOException {
+        Path path = getSegmentPath();
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer priority = ByteBuffer.allocate(8);
+            priority.putDouble(headPriority);
+            priority.flip();
+            while (priority.hasRemaining()) out.write(priority);
+            for (long copied = 0; copied < bytes; ) {
+                long transferred = out.transferFrom(in, 8 + copied, bytes - copied);
+                if (transferred <= 0) throw new IOException("Unexpected end of the spilled records");
+                copied += transferred;
+            }
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        path.toFile().deleteOnExit();
+        segments.add(new Segment(path, channel, 8 + bytes, nodes));
+        numberOfSegments++;
+    }
+
+    /**
+     * adds the nodes of the frontier to a checkpoint, segments are not copied here,
+     * the checkpoint reads them from their files in the background
+     */
+    synchronized void snapshot(Checkpoint checkpoint) throws IOException {
+        checkpoint.addNodes(memory);
+        for (Segment segment : segments) {
+            if (segment.remainedNodes == 0) continue;
+            checkpoint.addSegment(segment.path, segment.headPriority, segment.getReadPosition(),
+                    segment.size, segment.remainedNodes);
+        }
+    }
+
+    /**
+     * @return how much spilled and reloaded
+     */
+    public synchronized String getPrintStatsString() {
+        return "Frontier " + name + " -> Spilled nodes: " + spilledNodes
+                + String.format(" (%.2f MB in %d segments)", spilledBytes / 1e6, numberOfSegments)
+                + ", Reloaded nodes: " + reloadedNodes;
+    }
+
+    public synchronized long getSpilledNodes() {
+        return spilledNodes;
+    }
+
+    public synchronized long getReloadedNodes() {
+        return reloadedNodes;
+    }
+
+    /**
+     * a sorted file of spilled nodes
+     * record: priority (double), path length (short), vertex ids of the path (short each),
+     * next candidate of the node (short, -1 if the node isn't expanding)
+     */
+    static class Segment {
+        final Path path;
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        final long size;
+        long remainedNodes;
+        double headPriority;   // priority of the next node in the file
+
+        /**
+         * @param channel       channel positioned on the first record
+         * @param size          position of the end of the records in the channel
+         * @param remainedNodes number of records
+         */
+        Segment(Path path, FileChannel channel, long size, long remainedNodes) throws IOException {
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+            this.remainedNodes = remainedNodes;
+            buffer.limit(0);
+            if (remainedNodes > 0) headPriority = readDouble();
+        }
+
+        /**
+         * @return position of the record after the head priority in the file
+         */
+        long getReadPosition() throws IOException {
+            return channel.position() - buffer.remaining();
+        }
+
+        /**
+         * writes nodes[from, to) sequentially to a new segment file
+         */
+        static Segment write(Path path, BBNode[] nodes, int from, int to) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            short[] ids = new short[GlobalVars.numberOfNodes * 2 + 1];
+            long size = 0;
+
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (int i = from; i < to; i++) {
+                    int length = getReversedPath(nodes[i], ids);
+                    if (buffer.remaining() < 8 + 2 + 2 * length + 2) size += flush(buffer, out);
+                    putRecord(buffer, nodes[i].getPriority(), ids, length, nodes[i].nextCandidate);
+                }
+                size += flush(buffer, out);
+            }
+
+            // deleted by close() (or on exit), not on open, so a checkpoint can open it again
+            FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+            path.toFile().deleteOnExit();
+            return new Segment(path, in, size, to - from);
+        }
+
+        /**
+         * @param ids filled with the vertex ids of the path of the node from the node to the root
+         * @return length of the path
+         */
+        static int getReversedPath(BBNode node, short[] ids) {
+            int length = 0;
+            for (; node.parent != null; node = node.parent) ids[length++] = (short) node.vertexId;
+            return length;
+        }
+
+        /**
+         * puts a record of a node with its reversed path
+         */
+        static void putRecord(ByteBuffer buffer, double priority, short[] ids, int length, int nextCandidate) {
+            buffer.putDouble(priority);
+            buffer.putShort((short) length);
+            for (int j = length - 1; j >= 0; j--) buffer.putShort(ids[j]);
+            buffer.putShort((short) nextCandidate);
+        }
+
+        private static int flush(ByteBuffer buffer, FileChannel out) throws IOException {
+            buffer.flip();
+            int size = buffer.remaining();
+            while (buffer.hasRemaining()) out.write(buffer);
+            buffer.clear();
+            return size;
+        }
+
+        /**
+         * rebuilds the head node by replaying its path from the root
+         */
+        BBNode readNode() throws IOException {
+            int length = readShort();
+            BBNode node = BBNode.create(GlobalVars.depotId, null);
+            for (int i = 0; i < length; i++) {
+                BBNode child = BBNode.create(readShort(), node);
+                node.release(); // the child keeps its parent
+                node = child;
+            }
+            int nextCandidate = readShort();
+            if (nextCandidate >= 0) node.startExpansion(nextCandidate);
+
+            remainedNodes--;
+            if (remainedNodes > 0) headPriority = readDouble();
+            return node;
+        }
+
+        private void fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) throw new IOException("Unexpected end of segment " + path);
+            }
+            buffer.flip();
+        }
+
+        private double readDouble() throws IOException {
+            fill(8);
+            return buffer.getDouble();
+        }
+
+        private int readShort() throws IOException {
+            fill(2);
+            return buffer.getShort();
+        }
+
+        void close() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
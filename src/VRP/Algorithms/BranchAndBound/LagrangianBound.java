@@ -0,0 +1,139 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+import VRP.Graph.DistanceMatrix;
+
+/**
+ * Lagrangian lower bound for the travel time of the remaining routes of a node
+ * <p>
+ * remaining customers R must be left by the vehicle on the current vertex c or by new vehicles from depot d.
+ * every customer of R gets exactly one incoming arc (from R, c or d), and every vertex of R and c
+ * must have exactly one outgoing arc (to R or d). the outgoing constraints are relaxed with multipliers
+ * lambda, then every customer only picks its cheapest incoming arc with reduced cost w(u, v) - lambda(u):
+ * <p>
+ * L(lambda) = sum(v in R) min(u) [w(u, v) - lambda(u)] + sum(u in R + c) [min(0, w(u, d) - lambda(u)) + lambda(u)]
+ * <p>
+ * L(lambda) is a lower bound for every lambda. multipliers are improved with subgradient steps
+ * and every node starts from the multipliers of its parent.
+ */
+public class LagrangianBound {
+    private static final int ROOT_ITERATIONS = 50;
+    private static final int NODE_ITERATIONS = 5;
+
+    private static final ThreadLocal<LagrangianBound> workspaces = new ThreadLocal<LagrangianBound>() {
+        @Override
+        protected LagrangianBound initialValue() {
+            return new LagrangianBound();
+        }
+    };
+
+    // workspace of the current thread
+    private int[] remained = new int[0];  // R and then c
+    private int[] outDegrees = new int[0];
+    private double[] bestMultipliers = new double[0];
+
+    /**
+     * @return workspace of the current thread
+     */
+    public static LagrangianBound get() {
+        return workspaces.get();
+    }
+
+    /**
+     * calculates the bound and leaves the best multipliers in node.multipliers
+     *
+     * @param node   node that must be bounded (its parent multipliers are used as the start point)
+     * @param target travel time that is enough to prune the node, the search stops when it reaches it
+     * @return lower bound for the travel time of the remaining routes
+     */
+    public double calculate(BBNode node, double target) {
+        int numberOfNodes = GlobalVars.numberOfNodes;
+        int depotId = GlobalVars.depotId;
+        DistanceMatrix distances = GlobalVars.bbDistances;
+        if (remained.length != numberOfNodes) {
+            remained = new int[numberOfNodes];
+            outDegrees = new int[numberOfNodes];
+            bestMultipliers = new double[numberOfNodes];
+        }
+
+        // warm start
+        if (node.multipliers == null || node.multipliers.length != numberOfNodes)
+            node.multipliers = new double[numberOfNodes];
+        double[] lambda = node.multipliers;
+        if (node.parent != null && node.parent.multipliers != null)
+            System.arraycopy(node.parent.multipliers, 0, lambda, 0, numberOfNodes);
+        else
+            for (int i = 0; i < numberOfNodes; i++) lambda[i] = 0;
+
+        int r = 0;
+        for (int i = 0; i < GlobalVars.numberOfCustomers; i++) {
+            if (!node.isServiced(i)) remained[r++] = i;
+        }
+        int s = r;                                   // vertices with an outgoing constraint
+        if (!node.isDepot()) remained[s++] = node.vertexId;
+        lambda[depotId] = 0;
+
+        int iterations = node.parent == null ? ROOT_ITERATIONS : NODE_ITERATIONS;
+        double best = -GlobalVars.INF;
+        double theta = 1;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int i = 0; i < s; i++) outDegrees[remained[i]] = 0;
+
+            // incoming arcs of the customers
+            double value = 0;
+            for (int i = 0; i < r; i++) {
+                int v = remained[i];
+                int argument = depotId;
+                double minimum = distances.get(depotId, v);
+                for (int j = 0; j < s; j++) {
+                    int u = remained[j];
+                    if (u == v) continue;
+                    double reducedCost = distances.get(u, v) - lambda[u];
+                    if (reducedCost < minimum) {
+                        minimum = reducedCost;
+                        argument = u;
+                    }
+                }
+                value += minimum;
+                if (argument != depotId) outDegrees[argument]++;
+            }
+
+            // arcs to the depot and the constant part
+            for (int j = 0; j < s; j++) {
+                int u = remained[j];
+                double reducedCost = distances.get(u, depotId) - lambda[u];
+                if (reducedCost < 0) {
+                    value += reducedCost;
+                    outDegrees[u]++;
+                }
+                value += lambda[u];
+            }
+
+            if (value > best) {
+                best = value;
+                for (int j = 0; j < s; j++) bestMultipliers[remained[j]] = lambda[remained[j]];
+            } else {
+                theta /= 2;
+            }
+            if (best >= target) break;
+
+            // subgradient step (Polyak step to the target, or a bit above the value if there is no target)
+            double norm = 0;
+            for (int j = 0; j < s; j++) {
+                int g = 1 - outDegrees[remained[j]];
+                norm += g * g;
+            }
+            if (norm == 0) break; // the relaxed answer is feasible for the degree constraints, so it's optimal
+
+            double goal = Math.min(target, Math.abs(value) * 1.05 + 1);
+            double step = theta * (goal - value) / norm;
+            for (int j = 0; j < s; j++) {
+                int u = remained[j];
+                lambda[u] += step * (1 - outDegrees[u]);
+            }
+        }
+
+        for (int j = 0; j < s; j++) lambda[remained[j]] = bestMultipliers[remained[j]];
+        return best;
+    }
+}
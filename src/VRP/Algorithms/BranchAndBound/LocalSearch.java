@@ -0,0 +1,277 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+import VRP.Graph.DistanceMatrix;
+
+/**
+ * improves an answer of branch and bound with a local search:
+ * 2-opt in a route, relocate of a customer (to any position of any route, an unused vehicle too)
+ * and swap of two customers of different routes. the first improving move is applied until
+ * there is none.
+ * <p>
+ * a move is evaluated by the cost of the routes it changes with GlobalVars.bbDistances: travel time,
+ * penalties of the late arrivals (on the customers and the depot) and the fixed cost of the vehicle.
+ * the penalties depend on the arrival times (a reversed part of a route doesn't cost the same even with
+ * symmetric distances), so the cost of the changed routes is recalculated (O(route length)) instead of
+ * using the edges only.
+ * the improved answer is made by replaying its routes, so its cost is the cost of BBNode.
+ */
+public class LocalSearch {
+    private static final double EPSILON = 1e-9;
+    private static final int MAX_MOVES = 10_000;
+
+    private static final ThreadLocal<LocalSearch> instances = new ThreadLocal<LocalSearch>() {
+        @Override
+        protected LocalSearch initialValue() {
+            return new LocalSearch();
+        }
+    };
+
+    private int[][] routes = new int[0][];   // customers of every vehicle (empty for unused vehicles)
+    private int[] lengths = new int[0];
+    private int[] loads = new int[0];
+    private double[] costs = new double[0];
+    private int[] first = new int[0];        // scratch routes for the moves
+    private int[] second = new int[0];
+
+    /**
+     * @return local search of the current thread
+     */
+    public static LocalSearch get() {
+        return instances.get();
+    }
+
+    /**
+     * @param answer a terminal node (the caller keeps its reference)
+     * @return a better terminal node or null if the local search can't improve the answer
+     */
+    public BBNode improve(BBNode answer) {
+        readRoutes(answer);
+
+        int moves = 0;
+        while (moves < MAX_MOVES && (applyTwoOpt() || applyRelocate() || applySwap())) moves++;
+        if (moves == 0) return null;
+
+        BBNode improved = makeNode();
+        if (improved.getCost() < answer.getCost() - EPSILON) return improved;
+        improved.release();
+        return null;
+    }
+
+    /**
+     * fills the routes from the path of the answer
+     */
+    private void readRoutes(BBNode answer) {
+        int numberOfVehicles = GlobalVars.numberOfVehicles;
+        int numberOfCustomers = GlobalVars.numberOfCustomers;
+        if (routes.length != numberOfVehicles || first.length != numberOfCustomers + 1) {
+            routes = new int[numberOfVehicles][numberOfCustomers + 1];
+            lengths = new int[numberOfVehicles];
+            loads = new int[numberOfVehicles];
+            costs = new double[numberOfVehicles];
+            first = new int[numberOfCustomers + 1];
+            second = new int[numberOfCustomers + 1];
+        }
+
+        // the path is read from the end, so the routes and their customers are reversed
+        int numberOfRoutes = 0;
+        for (BBNode node = answer; node.parent != null; node = node.parent) {
+            if (node.isDepot()) {
+                if (numberOfRoutes > 0) reverse(routes[numberOfRoutes - 1], 0, lengths[numberOfRoutes - 1] - 1);
+                lengths[numberOfRoutes++] = 0;
+            } else {
+                routes[numberOfRoutes - 1][lengths[numberOfRoutes - 1]++] = node.vertexId;
+            }
+        }
+        if (numberOfRoutes > 0) reverse(routes[numberOfRoutes - 1], 0, lengths[numberOfRoutes - 1] - 1);
+
+        for (int r = 0; r < numberOfVehicles; r++) {
+            if (r >= numberOfRoutes) lengths[r] = 0;
+            loads[r] = 0;
+            for (int i = 0; i < lengths[r]; i++) loads[r] += GlobalVars.customerDemands[routes[r][i]];
+            costs[r] = getRouteCost(routes[r], lengths[r]);
+        }
+    }
+
+    /**
+     * @return true if a reversed part of a route makes it cheaper (and it is applied)
+     */
+    private boolean applyTwoOpt() {
+        for (int r = 0; r < routes.length; r++) {
+            int length = lengths[r];
+            for (int i = 0; i < length - 1; i++) {
+                for (int j = i + 1; j < length; j++) {
+                    System.arraycopy(routes[r], 0, first, 0, length);
+                    reverse(first, i, j);
+                    double cost = getRouteCost(first, length);
+                    if (cost < costs[r] - EPSILON) {
+                        setRoute(r, first, length, cost);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a customer moved to another position makes the answer cheaper (and it is applied)
+     */
+    private boolean applyRelocate() {
+        for (int a = 0; a < routes.length; a++) {
+            for (int i = 0; i < lengths[a]; i++) {
+                int customer = routes[a][i];
+                int demand = GlobalVars.customerDemands[customer];
+
+                // route a without the customer
+                int firstLength = remove(routes[a], lengths[a], i, first);
+                double firstCost = getRouteCost(first, firstLength);
+
+                for (int b = 0; b < routes.length; b++) {
+                    if (b == a) {
+                        for (int j = 0; j <= firstLength; j++) {
+                            if (j == i) continue;
+                            int length = insert(first, firstLength, j, customer, second);
+                            double cost = getRouteCost(second, length);
+                            if (cost < costs[a] - EPSILON) {
+                                setRoute(a, second, length, cost);
+                                return true;
+                            }
+                        }
+                        continue;
+                    }
+                    if (loads[b] + demand > GlobalVars.vehicleCapacity) continue;
+                    if (lengths[b] == 0 && lengths[a] == 1) continue;   // same route on another vehicle
+
+                    for (int j = 0; j <= lengths[b]; j++) {
+                        int length = insert(routes[b], lengths[b], j, customer, second);
+                        double cost = getRouteCost(second, length);
+                        if (firstCost + cost < costs[a] + costs[b] - EPSILON) {
+                            setRoute(b, second, length, cost);
+                            setRoute(a, first, firstLength, firstCost);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if two customers of different routes swapped make the answer cheaper (and it is applied)
+     */
+    private boolean applySwap() {
+        int[] demands = GlobalVars.customerDemands;
+        for (int a = 0; a < routes.length; a++) {
+            for (int b = a + 1; b < routes.length; b++) {
+                for (int i = 0; i < lengths[a]; i++) {
+                    for (int j = 0; j < lengths[b]; j++) {
+                        int u = routes[a][i];
+                        int v = routes[b][j];
+                        int difference = demands[v] - demands[u];
+                        if (loads[a] + difference > GlobalVars.vehicleCapacity
+                                || loads[b] - difference > GlobalVars.vehicleCapacity) continue;
+
+                        System.arraycopy(routes[a], 0, first, 0, lengths[a]);
+                        System.arraycopy(routes[b], 0, second, 0, lengths[b]);
+                        first[i] = v;
+                        second[j] = u;
+                        double firstCost = getRouteCost(first, lengths[a]);
+                        double secondCost = getRouteCost(second, lengths[b]);
+                        if (firstCost + secondCost < costs[a] + costs[b] - EPSILON) {
+                            setRoute(a, first, lengths[a], firstCost);
+                            setRoute(b, second, lengths[b], secondCost);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return cost of a route as BBNode calculates it: travel time, penalties of the late
+     * arrivals (the depot too) and the fixed cost of the vehicle (0 for an empty route)
+     */
+    private static double getRouteCost(int[] route, int length) {
+        if (length == 0) return 0;
+        DistanceMatrix distances = GlobalVars.bbDistances;
+        int depotId = GlobalVars.depotId;
+
+        double time = 0;
+        double cost = GlobalVars.vehicleFixedCost;
+        int previous = depotId;
+        for (int i = 0; i <= length; i++) {
+            int vertexId = i < length ? route[i] : depotId;
+            time += distances.get(previous, vertexId);
+            cost += distances.get(previous, vertexId);
+            if (time > GlobalVars.nodeDueDates[vertexId])
+                cost += GlobalVars.customerPenaltyCosts[vertexId] * (time - GlobalVars.nodeDueDates[vertexId]);
+            previous = vertexId;
+        }
+        return cost;
+    }
+
+    /**
+     * replaces route r with the given route
+     */
+    private void setRoute(int r, int[] route, int length, double cost) {
+        System.arraycopy(route, 0, routes[r], 0, length);
+        lengths[r] = length;
+        costs[r] = cost;
+        loads[r] = 0;
+        for (int i = 0; i < length; i++) loads[r] += GlobalVars.customerDemands[route[i]];
+    }
+
+    /**
+     * @return the terminal node of the routes in order of their first customer (as branch and bound makes them)
+     */
+    private BBNode makeNode() {
+        BBNode node = BBNode.create(GlobalVars.depotId, null);
+        boolean[] done = new boolean[routes.length];
+        while (true) {
+            int next = -1;
+            for (int r = 0; r < routes.length; r++) {
+                if (done[r] || lengths[r] == 0) continue;
+                if (next < 0 || routes[r][0] < routes[next][0]) next = r;
+            }
+            if (next < 0) return node;
+            done[next] = true;
+
+            for (int i = 0; i <= lengths[next]; i++) {
+                BBNode child = BBNode.create(i < lengths[next] ? routes[next][i] : GlobalVars.depotId, node);
+                node.release(); // the child keeps its parent
+                node = child;
+            }
+        }
+    }
+
+    /**
+     * @return length of the result, route without its i-th customer
+     */
+    private static int remove(int[] route, int length, int i, int[] result) {
+        System.arraycopy(route, 0, result, 0, i);
+        System.arraycopy(route, i + 1, result, i, length - i - 1);
+        return length - 1;
+    }
+
+    /**
+     * @return length of the result, route with the customer in position j
+     */
+    private static int insert(int[] route, int length, int j, int customer, int[] result) {
+        System.arraycopy(route, 0, result, 0, j);
+        result[j] = customer;
+        System.arraycopy(route, j, result, j + 1, length - j);
+        return length + 1;
+    }
+
+    private static void reverse(int[] route, int i, int j) {
+        for (; i < j; i++, j--) {
+            int tmp = route[i];
+            route[i] = route[j];
+            route[j] = tmp;
+        }
+    }
+}
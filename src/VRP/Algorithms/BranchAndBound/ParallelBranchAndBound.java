@@ -0,0 +1,282 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.GlobalVars;
+import VRP.Graph.Graph;
+import VRP.Graph.Vertex;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * a multi-threaded branch and bound algorithm for VRP
+ * every worker has its own best first frontier and steals
+ * the best node of the largest frontier when its own one is empty
+ */
+public class ParallelBranchAndBound extends BranchAndBound {
+    private static final int GAP_CHECK_PERIOD = 64;
+
+    private final int numberOfWorkers;
+    private Worker[] workers;
+
+    private final AtomicReference<Incumbent> incumbent;   // minimum cost and best node shared between workers
+    private final AtomicInteger openNodes = new AtomicInteger(); // nodes in the frontiers or being branched
+
+    private BBSolveLimits limits = BBSolveLimits.NONE;
+    private final LongAdder branchedNodes = new LongAdder();   // of all workers, for the node limit
+    private volatile BBSolveResult.Status stopReason;          // set by the first worker that reaches a limit
+
+    /**
+     * constructor for a given graph
+     *
+     * @param graph           a graph that has a Map<String, Vertex> adjacencyList
+     * @param minimumCost     an upper bound for the answer (e.g. genetic algorithm answer)
+     * @param numberOfWorkers number of threads that search the tree
+     */
+    public ParallelBranchAndBound(Graph graph, double minimumCost, int numberOfWorkers) {
+        super(graph, minimumCost);
+        this.numberOfWorkers = numberOfWorkers;
+        this.incumbent = new AtomicReference<>(new Incumbent(minimumCost, null));
+    }
+
+    /**
+     * runs the workers until the tree is explored or a limit is reached
+     *
+     * @param depotName is name of the depot (node that contains vehicles)
+     * @param limits    time, node and gap limits of the search
+     * @param listener  gets every better answer as soon as it is found (can be null)
+     * @return best answer, lower bound and gap when the search stopped
+     */
+    @Override
+    public BBSolveResult solve(String depotName, BBSolveLimits limits, BBIncumbentListener listener) {
+        System.out.println("--------------------------");
+        System.out.println("Parallel branch and bound algorithm (" + numberOfWorkers + " workers)");
+        System.out.println("--------------------------");
+        this.listener = listener;
+        this.limits = limits;
+        this.solveStartTime = System.nanoTime();
+        this.stopReason = null;
+        this.branchedNodes.reset();
+        openNodes.set(0);
+        BBMetrics.reset();
+
+        workers = new Worker[numberOfWorkers];
+        for (int i = 0; i < numberOfWorkers; i++) workers[i] = new Worker(i);
+
+        // add initial node
+        Vertex depotVertex = graph.getVertexByName(depotName);
+        pushNode(BBNode.create(depotVertex.getId(), null), workers[0].frontier);
+
+        Thread[] threads = new Thread[numberOfWorkers];
+        for (int i = 0; i < numberOfWorkers; i++) {
+            threads[i] = new Thread(workers[i], "bb-worker-" + i);
+            threads[i].start();
+        }
+        BBMetricsReporter reporter = new BBMetricsReporter(this, GlobalVars.printTimeStepSize);
+        reporter.start();
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    stopReason = BBSolveResult.Status.TIME_LIMIT; // stop the workers, they check it on every node
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        long elapsedMilliSecond = (System.nanoTime() - solveStartTime) / 1_000_000;
+        reporter.stop();
+
+        // publish the answer
+        Incumbent answer = incumbent.get();
+        minimumCost = answer.cost;
+        bestNode = answer.node;
+        for (Worker worker : workers) GlobalVars.numberOfBranchAndBoundNodes += worker.addedNodes;
+
+        printWorkersStats();
+        return makeResult(stopReason, branchedNodes.sum(), elapsedMilliSecond);
+    }
+
+    @Override
+    protected void pushNode(BBNode newNode, Frontier queue) {
+        openNodes.incrementAndGet(); // must be counted before anyone can steal it
+        queue.add(newNode);
+    }
+
+    @Override
+    protected double getMinimumCost() {
+        return incumbent.get().cost;
+    }
+
+    @Override
+    protected void updateTheAnswer(BBNode newNode) {
+        // the path and vehicles are read here, after the swap another worker can release the node
+        String routes = listener != null ? newNode.getStringPath() : null;
+        int vehicleUsed = newNode.vehicleUsed;
+        Incumbent newIncumbent = new Incumbent(newNode.getCost(), newNode);
+        while (true) {
+            Incumbent current = incumbent.get();
+            if (current.cost < newIncumbent.cost) {
+                newNode.release();
+                return;
+            }
+            if (incumbent.compareAndSet(current, newIncumbent)) {
+                if (current.node != null) current.node.release();
+                publishMinimumValue(newIncumbent.cost);
+                break;
+            }
+        }
+        if (listener != null)
+            listener.newIncumbent(newIncumbent.cost, routes, (System.nanoTime() - solveStartTime) / 1_000_000);
+        BBMetrics.incumbentUpdates.increment();
+        BBIncumbentEvent.commit(newIncumbent.cost, vehicleUsed);
+    }
+
+    /**
+     * lowers GlobalVars.minimumValue to the cost (a worker that swapped a worse incumbent
+     * can get here after a better one, so the value is only decreased)
+     */
+    private void publishMinimumValue(double cost) {
+        synchronized (incumbent) {
+            if (cost < GlobalVars.minimumValue) GlobalVars.minimumValue = cost;
+        }
+    }
+
+    @Override
+    protected long getFrontierSize() {
+        long size = 0;
+        for (Worker worker : workers) size += worker.frontier.size();
+        return size;
+    }
+
+    @Override
+    protected double getGlobalLowerBound() {
+        // a snapshot, a node is not seen between poll and setting branchingPriority
+        double minimum = GlobalVars.INF;
+        for (Worker worker : workers) {
+            minimum = Math.min(minimum, worker.frontier.getMinimumPriority());
+            minimum = Math.min(minimum, worker.branchingPriority);
+        }
+        return minimum;
+    }
+
+    /**
+     * takes the best node of the largest frontier of the other workers
+     *
+     * @return stolen node or null if all frontiers are empty
+     */
+    private BBNode steal(Worker thief) {
+        Worker victim = null;
+        for (Worker worker : workers) {
+            if (worker == thief) continue;
+            if (victim == null || worker.frontier.size() > victim.frontier.size()) victim = worker;
+        }
+        return victim == null ? null : victim.frontier.poll();
+    }
+
+    /**
+     * prints how many nodes each worker branched per second
+     */
+    private void printWorkersStats() {
+        System.out.println();
+        for (Worker worker : workers) {
+            double seconds = Math.max(worker.finishTime - worker.startTime, 1) / 1e9;
+            System.out.printf("Worker #%d,\t\tBranched nodes: %d,\t\tNodes/s: %.0f,\t\tStolen nodes: %d\n",
+                    worker.id, worker.branchedNodes, worker.branchedNodes / seconds, worker.stolenNodes);
+            if (worker.frontier.getSpilledNodes() > 0) System.out.println(worker.frontier.getPrintStatsString());
+        }
+        if (dominanceStore != null) System.out.println(dominanceStore.getPrintStatsString());
+    }
+
+    /**
+     * a thread of the search with its local frontier
+     */
+    private class Worker implements Runnable {
+        final int id;
+        final Frontier frontier;
+
+        // stats
+        long branchedNodes;
+        long addedNodes;
+        long stolenNodes;
+        long startTime;
+        long finishTime;
+        volatile double branchingPriority = GlobalVars.INF; // priority of the node being branched (for the lower bound)
+
+        Worker(int id) {
+            this.id = id;
+            this.frontier = new Frontier("worker-" + id, GlobalVars.frontierMemoryBudget / numberOfWorkers);
+        }
+
+        @Override
+        public void run() {
+            startTime = System.nanoTime();
+
+            while (stopReason == null) {
+                BBNode u = frontier.poll();
+                if (u == null) {
+                    u = steal(this);
+                    if (u != null) stolenNodes++;
+                }
+
+                if (u == null) {
+                    if (openNodes.get() == 0) break; // nothing in frontiers and no one is branching
+                    LockSupport.parkNanos(50_000);
+                    continue;
+                }
+
+                branchingPriority = u.getPriority();
+                if (!canBePruned(u)) {
+                    if (reachedLimit(u)) {
+                        frontier.add(u); // keep it for the lower bound, it's still counted in openNodes
+                        branchingPriority = GlobalVars.INF;
+                        break;
+                    }
+                    if (GlobalVars.diveFrequency > 0 && branchedNodes % GlobalVars.diveFrequency == 0) dive(u);
+                    addedNodes += branch(u, frontier);
+                    branchedNodes++;
+                    ParallelBranchAndBound.this.branchedNodes.increment();
+                    BBMetrics.nodesBranched.increment();
+                }
+                branchingPriority = GlobalVars.INF;
+                u.release();
+                openNodes.decrementAndGet();
+            }
+
+            finishTime = System.nanoTime();
+        }
+
+        /**
+         * checks the limits of the search, the gap is checked every GAP_CHECK_PERIOD nodes
+         * because it locks all of the frontiers
+         *
+         * @return true if the search must stop
+         */
+        private boolean reachedLimit(BBNode u) {
+            double lowerBound = -GlobalVars.INF;
+            if (limits.targetGap > 0 && branchedNodes % GAP_CHECK_PERIOD == 0)
+                lowerBound = Math.min(u.getPriority(), getGlobalLowerBound());
+            BBSolveResult.Status status = limits.check(solveStartTime,
+                    ParallelBranchAndBound.this.branchedNodes.sum(), getMinimumCost(), lowerBound);
+            if (status == null) return false;
+            stopReason = status;
+            return true;
+        }
+    }
+
+    /**
+     * minimum cost and the node that has it, replaced atomically
+     */
+    private static class Incumbent {
+        final double cost;
+        final BBNode node;
+
+        Incumbent(double cost, BBNode node) {
+            this.cost = cost;
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package VRP.Algorithms.BranchAndBound;
+
+import VRP.Algorithms.Other.BinPacking;
+import VRP.GlobalVars;
+
+import java.util.Arrays;
+
+/**
+ * lower bound for the number of vehicles that must leave the depot to service the remained customers
+ * <p>
+ * on the depot every remained customer needs a new vehicle, so the bound is the bin packing bound
+ * max(L1, L2) of their demands. on a customer the current vehicle is a bin that already has
+ * (capacity - remainedCapacity) goods in it, so the bound is the bin packing bound of the demands
+ * and that filler item minus one.
+ * <p>
+ * the results are memoized on (serviced customers, remained capacity) in a direct mapped cache
+ * for every thread (only if there are at most 64 customers)
+ */
+public class VehiclesBound {
+    private static final int CACHE_SIZE = 1 << 16;
+
+    private static final ThreadLocal<VehiclesBound> instances = new ThreadLocal<VehiclesBound>() {
+        @Override
+        protected VehiclesBound initialValue() {
+            return new VehiclesBound();
+        }
+    };
+
+    private final long[] cachedServicedNodes = new long[CACHE_SIZE];
+    private final int[] cachedCapacities = new int[CACHE_SIZE];   // remained capacity + 2 (1 for depot, 0 for empty entries)
+    private final int[] cachedBounds = new int[CACHE_SIZE];
+    private int[] sizes = new int[0];
+    private int[] counts = new int[0];
+    private int[] cachedDemands;    // GlobalVars.distinctDemands that the cache is filled for
+
+    // for reporting
+    private long hits;
+    private long misses;
+
+    /**
+     * @return vehicles bound of the current thread
+     */
+    public static VehiclesBound get() {
+        return instances.get();
+    }
+
+    /**
+     * @return minimum number of extra vehicles needed to serve the remaining customers of the node
+     */
+    public int calculate(BBNode node) {
+        if (cachedDemands != GlobalVars.distinctDemands) reset();
+
+        int capacity = node.isDepot() ? -1 : node.remainedCapacity;
+        boolean cacheable = node.servicedNodesOverflow == null;
+        int index = 0;
+        if (cacheable) {
+            long h = (node.servicedNodes * 0x9E3779B97F4A7C15L) ^ (capacity * 0xC2B2AE3D27D4EB4FL);
+            index = (int) (h >>> 48) & (CACHE_SIZE - 1);
+            if (cachedCapacities[index] == capacity + 2 && cachedServicedNodes[index] == node.servicedNodes) {
+                hits++;
+                return cachedBounds[index];
+            }
+        }
+        misses++;
+
+        int bound = calculateWithoutCache(node);
+        if (cacheable) {
+            cachedServicedNodes[index] = node.servicedNodes;
+            cachedCapacities[index] = capacity + 2;
+            cachedBounds[index] = bound;
+        }
+        return bound;
+    }
+
+    private int calculateWithoutCache(BBNode node) {
+        int[] demands = GlobalVars.distinctDemands;
+        int vehicleCapacity = GlobalVars.vehicleCapacity;
+        int filler = node.isDepot() ? 0 : vehicleCapacity - node.remainedCapacity;
+
+        // remained demands and the filler item in descending order
+        int length = 0;
+        boolean fillerAdded = filler == 0;
+        for (int i = 0; i < demands.length; i++) {
+            if (!fillerAdded && filler >= demands[i]) {
+                sizes[length] = filler;
+                counts[length++] = 1;
+                fillerAdded = true;
+            }
+            sizes[length] = demands[i];
+            counts[length++] = node.getRemainedDemandCount(i);
+        }
+        if (!fillerAdded) {
+            sizes[length] = filler;
+            counts[length++] = 1;
+        }
+
+        int bins = Math.max(BinPacking.continuousLowerBound(sizes, counts, length, vehicleCapacity),
+                BinPacking.martelloTothLowerBound(sizes, counts, length, vehicleCapacity));
+        if (node.isDepot()) return bins;
+        return Math.max(0, bins - 1);   // the current vehicle is one of the bins
+    }
+
+    private void reset() {
+        cachedDemands = GlobalVars.distinctDemands;
+        sizes = new int[cachedDemands.length + 1];
+        counts = new int[cachedDemands.length + 1];
+        Arrays.fill(cachedCapacities, 0);
+    }
+
+    /**
+     * @return number of bounds read from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of bounds calculated
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,629 @@
+package VRP.Algorithms.Dijkstra;
+
+import VRP.Graph.CompactGraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * contraction hierarchy of a road graph (the roads are two way, as Graph.addEdge makes them)
+ * <p>
+ * the vertices are contracted one by one in order of their edge difference (shortcuts added - edges removed).
+ * a contracted vertex gets a shortcut between two of its neighbours if a witness search doesn't find a path
+ * as short without it. every vertex keeps its edges to the higher ranked vertices (the upward graph in CSR form)
+ * and a shortcut keeps the vertex it skips, so a path is unpacked by replacing every shortcut with its two edges.
+ * a distance is the minimum over the vertices settled by the upward searches of both ends, and a distance
+ * matrix is made by one upward search of every source and every target (the targets fill buckets).
+ * <p>
+ * the index is saved with the vertex names and a fingerprint of the edges, so it is loaded only for the same graph.
+ * queries use the searches of the hierarchy, so they aren't thread safe.
+ */
+public class ContractionHierarchy {
+    private static final int MAGIC = 0x56524348; // "VRCH"
+    private static final int VERSION = 1;
+    private static final int WITNESS_SETTLE_LIMIT = 500; // a witness search gives up after settling this many vertices
+
+    private final CompactGraph graph;
+    private final long fingerprint;
+    private final int[] ranks;       // contraction order of every vertex
+    private final int[] upOffsets;   // upward edges of u: upOffsets[u]..upOffsets[u + 1]
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] upMiddles;   // vertex skipped by the shortcut (-1 for a road)
+
+    private final UpwardSearch forward;
+    private final UpwardSearch backward;
+    private int settledVertices;     // settled vertices of the last query
+
+    // buckets of the targets in getDistances: linked lists of (target index, distance) for every vertex
+    private final int[] bucketHeads;
+    private final int[] bucketRun;
+    private int bucketRunNumber;
+    private int[] entryNext = new int[1024];
+    private int[] entryTarget = new int[1024];
+    private double[] entryDistance = new double[1024];
+
+    /**
+     * builds the hierarchy of a graph (the graph isn't changed)
+     */
+    public ContractionHierarchy(CompactGraph graph) {
+        this.graph = graph;
+        this.fingerprint = getFingerprint(graph);
+
+        Contraction contraction = new Contraction(graph);
+        contraction.run();
+
+        int n = graph.getNumberOfVertices();
+        this.ranks = contraction.ranks;
+        this.upOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++) upOffsets[u + 1] = upOffsets[u] + contraction.upDegrees[u];
+        this.upTargets = new int[upOffsets[n]];
+        this.upWeights = new double[upOffsets[n]];
+        this.upMiddles = new int[upOffsets[n]];
+        for (int u = 0; u < n; u++) {
+            System.arraycopy(contraction.upTargets[u], 0, upTargets, upOffsets[u], contraction.upDegrees[u]);
+            System.arraycopy(contraction.upWeights[u], 0, upWeights, upOffsets[u], contraction.upDegrees[u]);
+            System.arraycopy(contraction.upMiddles[u], 0, upMiddles, upOffsets[u], contraction.upDegrees[u]);
+        }
+
+        this.forward = new UpwardSearch();
+        this.backward = new UpwardSearch();
+        this.bucketHeads = new int[n];
+        this.bucketRun = new int[n];
+    }
+
+    private ContractionHierarchy(CompactGraph graph, long fingerprint, int[] ranks, int[] upOffsets,
+                                 int[] upTargets, double[] upWeights, int[] upMiddles) {
+        this.graph = graph;
+        this.fingerprint = fingerprint;
+        this.ranks = ranks;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.forward = new UpwardSearch();
+        this.backward = new UpwardSearch();
+        this.bucketHeads = new int[graph.getNumberOfVertices()];
+        this.bucketRun = new int[graph.getNumberOfVertices()];
+    }
+
+    /**
+     * saves the hierarchy to a binary file
+     */
+    public void save(String filePath) throws IOException {
+        int n = graph.getNumberOfVertices();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(n);
+            out.writeInt(upTargets.length);
+            for (int u = 0; u < n; u++) out.writeUTF(graph.getVertex(u).name);
+            for (int u = 0; u < n; u++) out.writeInt(ranks[u]);
+            for (int u = 0; u < n; u++) out.writeInt(upOffsets[u + 1] - upOffsets[u]);
+            for (int e = 0; e < upTargets.length; e++) {
+                out.writeInt(upTargets[e]);
+                out.writeDouble(upWeights[e]);
+                out.writeInt(upMiddles[e]);
+            }
+        }
+    }
+
+    /**
+     * loads a hierarchy saved for the same graph (the vertex ids of the file are mapped to the graph by name)
+     *
+     * @throws IOException if the file can't be read or it is the hierarchy of another graph
+     */
+    public static ContractionHierarchy load(String filePath, CompactGraph graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(filePath + " isn't a contraction hierarchy of this version");
+            long fingerprint = in.readLong();
+            int n = in.readInt();
+            int numberOfEdges = in.readInt();
+            if (n != graph.getNumberOfVertices() || fingerprint != getFingerprint(graph))
+                throw new IOException(filePath + " is the contraction hierarchy of another graph");
+
+            int[] ids = new int[n]; // id in the graph of every vertex of the file
+            for (int i = 0; i < n; i++) {
+                ids[i] = graph.getId(in.readUTF());
+                if (ids[i] < 0) throw new IOException(filePath + " is the contraction hierarchy of another graph");
+            }
+            int[] ranks = new int[n];
+            for (int i = 0; i < n; i++) ranks[ids[i]] = in.readInt();
+            int[] degrees = new int[n];
+            for (int i = 0; i < n; i++) degrees[i] = in.readInt();
+
+            int[] upOffsets = new int[n + 1];
+            for (int i = 0; i < n; i++) upOffsets[ids[i] + 1] = degrees[i];
+            for (int u = 0; u < n; u++) upOffsets[u + 1] += upOffsets[u];
+            if (upOffsets[n] != numberOfEdges) throw new IOException(filePath + " is corrupted");
+
+            int[] upTargets = new int[numberOfEdges];
+            double[] upWeights = new double[numberOfEdges];
+            int[] upMiddles = new int[numberOfEdges];
+            for (int i = 0; i < n; i++) {
+                for (int e = upOffsets[ids[i]]; e < upOffsets[ids[i] + 1]; e++) {
+                    upTargets[e] = ids[in.readInt()];
+                    upWeights[e] = in.readDouble();
+                    int middle = in.readInt();
+                    upMiddles[e] = middle < 0 ? -1 : ids[middle];
+                }
+            }
+            return new ContractionHierarchy(graph, fingerprint, ranks, upOffsets, upTargets, upWeights, upMiddles);
+        }
+    }
+
+    /**
+     * @return a fingerprint of the vertex names and the edges of the graph (doesn't depend on the vertex ids)
+     */
+    private static long getFingerprint(CompactGraph graph) {
+        long fingerprint = graph.getNumberOfVertices() * 31L + graph.getNumberOfEdges();
+        for (int u = 0; u < graph.getNumberOfVertices(); u++) {
+            long uHash = graph.getVertex(u).name.hashCode();
+            fingerprint += mix(uHash);
+            for (int edge = graph.getEdgesStart(u); edge < graph.getEdgesEnd(u); edge++) {
+                long vHash = graph.getVertex(graph.getTarget(edge)).name.hashCode();
+                fingerprint += mix(uHash * 0x9E3779B97F4A7C15L + vHash ^ Double.doubleToLongBits(graph.getWeight(edge)));
+            }
+        }
+        return fingerprint;
+    }
+
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * @return number of upward edges (roads and shortcuts)
+     */
+    public int getNumberOfEdges() {
+        return upTargets.length;
+    }
+
+    /**
+     * @return number of vertices settled by the searches of the last query
+     */
+    public int getNumberOfSettledVertices() {
+        return settledVertices;
+    }
+
+    /**
+     * @return distance between two vertices (Integer.MAX_VALUE if there isn't any path)
+     */
+    public double getDistance(int source, int target) {
+        int meeting = findMeetingVertex(source, target);
+        return meeting < 0 ? Integer.MAX_VALUE : forward.distances[meeting] + backward.distances[meeting];
+    }
+
+    /**
+     * @return vertices of the shortest path from the source to the target in the graph (null if there isn't any path)
+     */
+    public int[] getPath(int source, int target) {
+        int meeting = findMeetingVertex(source, target);
+        if (meeting < 0) return null;
+
+        Path path = new Path(source);
+        // source up to the meeting vertex: the vertices are found from the meeting vertex backwards
+        Path upward = new Path(meeting);
+        for (int v = meeting; v != source; v = forward.previousVertices[v]) upward.add(forward.previousVertices[v]);
+        for (int i = upward.size - 1; i > 0; i--) {
+            int v = upward.vertices[i - 1];
+            unpack(upward.vertices[i], v, forward.previousEdges[v], path);
+        }
+        // meeting vertex down to the target
+        for (int v = meeting; v != target; v = backward.previousVertices[v]) {
+            unpack(v, backward.previousVertices[v], backward.previousEdges[v], path);
+        }
+        return path.toArray();
+    }
+
+    /**
+     * @return distances from every source to every target in a row-major array (Integer.MAX_VALUE if there
+     * isn't any path), the upward searches of the targets fill the buckets read by the searches of the sources
+     */
+    public double[] getDistances(int[] sources, int[] targets) {
+        settledVertices = 0;
+        startBuckets();
+        int numberOfEntries = 0;
+        for (int j = 0; j < targets.length; j++) {
+            backward.run(targets[j]);
+            settledVertices += backward.numberOfSettled;
+            for (int k = 0; k < backward.numberOfSettled; k++) {
+                int v = backward.settled[k];
+                if (numberOfEntries == entryNext.length) growEntries();
+                entryTarget[numberOfEntries] = j;
+                entryDistance[numberOfEntries] = backward.distances[v];
+                entryNext[numberOfEntries] = getBucketHead(v);
+                bucketHeads[v] = numberOfEntries++;
+            }
+        }
+
+        double[] result = new double[sources.length * targets.length];
+        Arrays.fill(result, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < sources.length; i++) {
+            forward.run(sources[i]);
+            settledVertices += forward.numberOfSettled;
+            int row = i * targets.length;
+            for (int k = 0; k < forward.numberOfSettled; k++) {
+                int v = forward.settled[k];
+                double distance = forward.distances[v];
+                for (int entry = getBucketHead(v); entry >= 0; entry = entryNext[entry]) {
+                    double candidate = distance + entryDistance[entry];
+                    if (candidate < result[row + entryTarget[entry]]) result[row + entryTarget[entry]] = candidate;
+                }
+            }
+        }
+        for (int i = 0; i < result.length; i++) if (result[i] == Double.POSITIVE_INFINITY) result[i] = Integer.MAX_VALUE;
+        return result;
+    }
+
+    /**
+     * @return vertex with the minimum distance from both ends in their upward searches (-1 if there isn't any)
+     */
+    private int findMeetingVertex(int source, int target) {
+        forward.run(source);
+        backward.run(target);
+        settledVertices = forward.numberOfSettled + backward.numberOfSettled;
+
+        int meeting = -1;
+        double minimum = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < backward.numberOfSettled; k++) {
+            int v = backward.settled[k];
+            if (!forward.isReached(v)) continue;
+            double distance = forward.distances[v] + backward.distances[v];
+            if (distance < minimum) {
+                minimum = distance;
+                meeting = v;
+            }
+        }
+        return meeting;
+    }
+
+    /**
+     * adds the vertices after from on the edge between from and to to the path (shortcuts are replaced by their edges)
+     */
+    private void unpack(int from, int to, int edge, Path path) {
+        int[] stack = new int[48]; // (from, to, edge) triples
+        int size = 0;
+        stack[size++] = from;
+        stack[size++] = to;
+        stack[size++] = edge;
+        while (size > 0) {
+            int e = stack[--size];
+            int v = stack[--size];
+            int u = stack[--size];
+            int middle = upMiddles[e];
+            if (middle < 0) {
+                path.add(v);
+                continue;
+            }
+            if (size + 6 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            // u -> middle is unpacked first, so it is pushed last
+            stack[size++] = middle;
+            stack[size++] = v;
+            stack[size++] = findEdge(middle, v);
+            stack[size++] = u;
+            stack[size++] = middle;
+            stack[size++] = findEdge(u, middle);
+        }
+    }
+
+    /**
+     * @return upward edge between two vertices (from the lower ranked one)
+     */
+    private int findEdge(int u, int v) {
+        int lower = ranks[u] < ranks[v] ? u : v;
+        int upper = lower == u ? v : u;
+        for (int e = upOffsets[lower]; e < upOffsets[lower + 1]; e++) if (upTargets[e] == upper) return e;
+        throw new IllegalStateException("missing edge of a shortcut " + u + " - " + v);
+    }
+
+    private void startBuckets() {
+        if (bucketRunNumber == Integer.MAX_VALUE) {
+            bucketRunNumber = 0;
+            Arrays.fill(bucketRun, 0);
+        }
+        bucketRunNumber++;
+    }
+
+    private int getBucketHead(int v) {
+        if (bucketRun[v] != bucketRunNumber) {
+            bucketRun[v] = bucketRunNumber;
+            bucketHeads[v] = -1;
+        }
+        return bucketHeads[v];
+    }
+
+    private void growEntries() {
+        entryNext = Arrays.copyOf(entryNext, entryNext.length * 2);
+        entryTarget = Arrays.copyOf(entryTarget, entryTarget.length * 2);
+        entryDistance = Arrays.copyOf(entryDistance, entryDistance.length * 2);
+    }
+
+    /**
+     * dijkstra on the upward graph, it settles every vertex it reaches (the search space of a vertex is small)
+     */
+    private class UpwardSearch {
+        final double[] distances = new double[ranks.length];
+        final int[] previousVertices = new int[ranks.length];
+        final int[] previousEdges = new int[ranks.length];
+        final int[] reachedRun = new int[ranks.length];
+        final int[] settled = new int[ranks.length]; // settled vertices in order
+        final IndexedHeap heap = new IndexedHeap(ranks.length);
+        int run;
+        int numberOfSettled;
+
+        void run(int source) {
+            if (run == Integer.MAX_VALUE) {
+                run = 0;
+                Arrays.fill(reachedRun, 0);
+            }
+            run++;
+            numberOfSettled = 0;
+            reach(source, 0, source, -1);
+            heap.clear();
+            heap.addOrDecrease(source, 0);
+
+            while (!heap.isEmpty()) {
+                int u = heap.pop();
+                settled[numberOfSettled++] = u;
+                double distance = distances[u];
+                for (int e = upOffsets[u]; e < upOffsets[u + 1]; e++) {
+                    int v = upTargets[e];
+                    double newDistance = distance + upWeights[e];
+                    if (!isReached(v) || newDistance < distances[v]) {
+                        reach(v, newDistance, u, e);
+                        heap.addOrDecrease(v, newDistance);
+                    }
+                }
+            }
+        }
+
+        boolean isReached(int v) {
+            return reachedRun[v] == run;
+        }
+
+        private void reach(int v, double distance, int previousVertex, int previousEdge) {
+            distances[v] = distance;
+            previousVertices[v] = previousVertex;
+            previousEdges[v] = previousEdge;
+            reachedRun[v] = run;
+        }
+    }
+
+    /**
+     * growing list of the vertices of a path
+     */
+    private static class Path {
+        int[] vertices = new int[16];
+        int size;
+
+        Path(int source) {
+            add(source);
+        }
+
+        void add(int v) {
+            if (size == vertices.length) vertices = Arrays.copyOf(vertices, size * 2);
+            vertices[size++] = v;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(vertices, size);
+        }
+    }
+
+    /**
+     * state of the contraction: the remaining graph (adjacency arrays of the vertices that aren't contracted yet)
+     * and the upward edges of the contracted vertices
+     */
+    private static class Contraction {
+        final int n;
+        final int[][] neighbours;
+        final double[][] weights;
+        final int[][] middles;
+        final int[] degrees;
+        final int[] contractedNeighbours;
+        final boolean[] contracted;
+
+        final int[] ranks;
+        final int[][] upTargets;
+        final double[][] upWeights;
+        final int[][] upMiddles;
+        final int[] upDegrees;
+
+        // witness search
+        final double[] witnessDistances;
+        final int[] witnessRun;
+        final IndexedHeap witnessHeap;
+        int run;
+
+        Contraction(CompactGraph graph) {
+            n = graph.getNumberOfVertices();
+            neighbours = new int[n][];
+            weights = new double[n][];
+            middles = new int[n][];
+            degrees = new int[n];
+            contractedNeighbours = new int[n];
+            contracted = new boolean[n];
+            ranks = new int[n];
+            upTargets = new int[n][];
+            upWeights = new double[n][];
+            upMiddles = new int[n][];
+            upDegrees = new int[n];
+            witnessDistances = new double[n];
+            witnessRun = new int[n];
+            witnessHeap = new IndexedHeap(n);
+
+            for (int u = 0; u < n; u++) {
+                int capacity = Math.max(4, graph.getEdgesEnd(u) - graph.getEdgesStart(u));
+                neighbours[u] = new int[capacity];
+                weights[u] = new double[capacity];
+                middles[u] = new int[capacity];
+            }
+            for (int u = 0; u < n; u++) {
+                for (int edge = graph.getEdgesStart(u); edge < graph.getEdgesEnd(u); edge++) {
+                    int v = graph.getTarget(edge);
+                    if (v != u) addEdge(u, v, graph.getWeight(edge), -1);
+                }
+            }
+        }
+
+        /**
+         * contracts the vertices in order of their priority (updated lazily when a vertex is polled)
+         */
+        void run() {
+            IndexedHeap queue = new IndexedHeap(n);
+            for (int v = 0; v < n; v++) queue.addOrDecrease(v, getPriority(v));
+
+            int rank = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.pop();
+                double priority = getPriority(v);
+                if (!queue.isEmpty() && priority > queue.peekKey()) {
+                    queue.addOrDecrease(v, priority);
+                    continue;
+                }
+                contract(v);
+                ranks[v] = rank++;
+            }
+        }
+
+        private double getPriority(int v) {
+            return addShortcuts(v, false) - degrees[v] + contractedNeighbours[v];
+        }
+
+        private void contract(int v) {
+            addShortcuts(v, true);
+
+            // the remaining neighbours are the upward edges of v
+            upDegrees[v] = degrees[v];
+            upTargets[v] = Arrays.copyOf(neighbours[v], degrees[v]);
+            upWeights[v] = Arrays.copyOf(weights[v], degrees[v]);
+            upMiddles[v] = Arrays.copyOf(middles[v], degrees[v]);
+
+            for (int i = 0; i < degrees[v]; i++) {
+                int u = neighbours[v][i];
+                removeEdge(u, v);
+                contractedNeighbours[u]++;
+            }
+            contracted[v] = true;
+            neighbours[v] = null;
+            weights[v] = null;
+            middles[v] = null;
+        }
+
+        /**
+         * @return number of shortcuts needed to contract v (they are added to the graph if add is true)
+         */
+        private int addShortcuts(int v, boolean add) {
+            int count = 0;
+            int[] vNeighbours = neighbours[v];
+            double[] vWeights = weights[v];
+            int degree = degrees[v];
+            for (int i = 0; i < degree - 1; i++) {
+                int u = vNeighbours[i];
+                double maximum = 0;
+                for (int j = i + 1; j < degree; j++) maximum = Math.max(maximum, vWeights[i] + vWeights[j]);
+                findWitnesses(u, v, maximum);
+
+                for (int j = i + 1; j < degree; j++) {
+                    int w = vNeighbours[j];
+                    double distance = vWeights[i] + vWeights[j];
+                    if (getWitnessDistance(w) <= distance) continue;
+                    count++;
+                    if (add) addEdge(u, w, distance, v);
+                }
+            }
+            return count;
+        }
+
+        /**
+         * dijkstra from the source in the remaining graph without the vertex, up to the maximum distance
+         */
+        private void findWitnesses(int source, int without, double maximum) {
+            if (run == Integer.MAX_VALUE) {
+                run = 0;
+                Arrays.fill(witnessRun, 0);
+            }
+            run++;
+            witnessDistances[source] = 0;
+            witnessRun[source] = run;
+            witnessHeap.clear();
+            witnessHeap.addOrDecrease(source, 0);
+
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+                if (witnessHeap.peekKey() > maximum) break;
+                int u = witnessHeap.pop();
+                settled++;
+                double distance = witnessDistances[u];
+                for (int i = 0; i < degrees[u]; i++) {
+                    int v = neighbours[u][i];
+                    if (v == without) continue;
+                    double newDistance = distance + weights[u][i];
+                    if (witnessRun[v] != run || newDistance < witnessDistances[v]) {
+                        witnessDistances[v] = newDistance;
+                        witnessRun[v] = run;
+                        witnessHeap.addOrDecrease(v, newDistance);
+                    }
+                }
+            }
+        }
+
+        private double getWitnessDistance(int v) {
+            return witnessRun[v] == run ? witnessDistances[v] : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * adds an edge (both directions) or makes the edge between the vertices shorter
+         */
+        private void addEdge(int u, int v, double weight, int middle) {
+            int i = indexOf(u, v);
+            if (i >= 0) {
+                if (weights[u][i] <= weight) return;
+                int j = indexOf(v, u);
+                weights[u][i] = weight;
+                middles[u][i] = middle;
+                weights[v][j] = weight;
+                middles[v][j] = middle;
+                return;
+            }
+            append(u, v, weight, middle);
+            append(v, u, weight, middle);
+        }
+
+        private void append(int u, int v, double weight, int middle) {
+            if (degrees[u] == neighbours[u].length) {
+                neighbours[u] = Arrays.copyOf(neighbours[u], degrees[u] * 2);
+                weights[u] = Arrays.copyOf(weights[u], degrees[u] * 2);
+                middles[u] = Arrays.copyOf(middles[u], degrees[u] * 2);
+            }
+            neighbours[u][degrees[u]] = v;
+            weights[u][degrees[u]] = weight;
+            middles[u][degrees[u]] = middle;
+            degrees[u]++;
+        }
+
+        private void removeEdge(int u, int v) {
+            int i = indexOf(u, v);
+            int last = --degrees[u];
+            neighbours[u][i] = neighbours[u][last];
+            weights[u][i] = weights[u][last];
+            middles[u][i] = middles[u][last];
+        }
+
+        private int indexOf(int u, int v) {
+            for (int i = 0; i < degrees[u]; i++) if (neighbours[u][i] == v) return i;
+            return -1;
+        }
+    }
+}
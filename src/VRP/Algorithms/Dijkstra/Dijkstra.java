@@ -1,30 +1,73 @@
 package VRP.Algorithms.Dijkstra;
 
 import VRP.GlobalVars;
+import VRP.Graph.CompactGraph;
 import VRP.Graph.Edge;
+import VRP.Graph.GeometryWriter;
 import VRP.Graph.Graph;
 import VRP.Graph.Vertex;
 import VRP.Graph.VertexType;
 
-import java.util.Comparator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Dijkstra algorithm (Just give it the Graph)
+ * <p>
+ * runs on the compact (CSR) form of the graph with an indexed 4-ary heap of the vertex ids,
+ * a vertex is added when it is reached and its key is decreased when its distance gets shorter.
+ * the searches of the shortest path graph run in parallel, every thread with its own ShortestPathSearch,
+ * and a search stops when every customer and the depot are settled (or at the search radius).
+ * with a contraction hierarchy the shortest path graph and the paths are found by its upward searches.
+ * the shortest path trees of the searches are kept (LRU by source), so exporting the routes doesn't search again
  */
 public class Dijkstra {
     private Graph graph;
+    private CompactGraph compactGraph;
+    private ShortestPathSearch search; // search of run(String)
+    private double searchRadius = GlobalVars.shortestPathSearchRadius; // farther targets are unreachable in the shortest path graph
+    private final AtomicLong settledVertices = new AtomicLong(); // settled vertices in the searches of getDistances
+    private ContractionHierarchy contractionHierarchy; // used instead of the searches if it is set
+    private int[] pathTargets; // customers and the depot of the last shortest path graph (targets of the kept trees)
+
+    // shortest path trees of the last searches by their source (LRU)
+    private final Map<Integer, ShortestPathTree> pathTrees =
+            new LinkedHashMap<Integer, ShortestPathTree>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, ShortestPathTree> eldest) {
+                    return size() > GlobalVars.shortestPathTreeCacheSize;
+                }
+            };
+
+    // searches of the worker threads
+    private final ThreadLocal<ShortestPathSearch> searches = new ThreadLocal<ShortestPathSearch>() {
+        @Override
+        protected ShortestPathSearch initialValue() {
+            return new ShortestPathSearch(compactGraph);
+        }
+    };
 
     /**
      * Constructor
      */
     public Dijkstra(Graph graph) { // constructor
         this.graph = graph;
+        this.compactGraph = new CompactGraph(graph);
+        this.search = new ShortestPathSearch(compactGraph);
     }
 
     /**
-     * Runs dijkstra using a specified source vertex O(nlogn + E)
+     * Runs dijkstra using a specified source vertex O((V + E)logV)
+     * the results are in distOnShortestPath and previousNodeOnShortestPath of the vertices
      */
     public void run(String startName) {
 
@@ -33,48 +76,145 @@ public class Dijkstra {
             return;
         }
 
-        Vertex source = graph.getVertexByName(startName); // extract the source vertex using it's name
+        search.run(compactGraph.getId(startName));
 
-        // builds a min heap for extracting minimum distance vertex in log(n) [https://en.wikipedia.org/wiki/Binary_heap]
-        PriorityQueue<Vertex> pq = new PriorityQueue<>(10, new Comparator<Vertex>() {
-            @Override
-            public int compare(Vertex v1, Vertex v2) {
-                return Double.compare(v1.distOnShortestPath, v2.distOnShortestPath);
-            }
-        });
+        for (int v = 0; v < compactGraph.getNumberOfVertices(); v++) {
+            Vertex vertex = compactGraph.getVertex(v);
+            vertex.distOnShortestPath = search.getDistance(v);
+            vertex.previousNodeOnShortestPath = search.getPrevious(v) < 0 ? null : compactGraph.getVertex(search.getPrevious(v));
+        }
+    }
 
-        // initialize vertices
-        for (Vertex v : graph.getVertices()) {
-            if (v == source) {
-                v.distOnShortestPath = 0;
-                v.previousNodeOnShortestPath = source; // for start node distance is 0 and previous node is itself
-            } else {
-                v.distOnShortestPath = Integer.MAX_VALUE;
-                v.previousNodeOnShortestPath = null; // for all other nodes set their distance to infinity and previous to null
-            }
-            pq.add(v); // add node to priority queue
+    /**
+     * uses a contraction hierarchy of the graph for the shortest path graph and the paths
+     * it is loaded from the file if the file has the hierarchy of this graph, otherwise it is built and saved
+     */
+    public void useContractionHierarchy(String filePath) {
+        try {
+            contractionHierarchy = ContractionHierarchy.load(filePath, compactGraph);
+            return;
+        } catch (IOException e) {
+            System.out.println("Building the contraction hierarchy (" + e.getMessage() + ")");
+        }
+
+        contractionHierarchy = new ContractionHierarchy(compactGraph);
+        try {
+            contractionHierarchy.save(filePath);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+    }
+
+    /**
+     * sets the maximum distance of the shortest path graph searches (the default is GlobalVars.shortestPathSearchRadius)
+     */
+    public void setSearchRadius(double searchRadius) {
+        this.searchRadius = searchRadius;
+    }
+
+    /**
+     * @return number of vertices settled by the searches of the last shortest path graph
+     */
+    public long getNumberOfSettledVertices() {
+        return settledVertices.get();
+    }
 
-        while (!pq.isEmpty()) {
-            Vertex u = pq.poll(); // vertex with shortest distance (first iteration will return source)
-            if (u.distOnShortestPath == Integer.MAX_VALUE)
-                break; // we can ignore u (and any other remaining vertices) since they are unreachable
+    /**
+     * @return distances from every source to every target (compact graph ids) in a row-major array
+     * the sources run on a fork join pool of GlobalVars.numberOfThreads threads, every source writes its own row
+     */
+    private double[] getDistances(final int[] sources, final int[] targets) {
+        if (contractionHierarchy != null) {
+            double[] result = contractionHierarchy.getDistances(sources, targets);
+            settledVertices.set(contractionHierarchy.getNumberOfSettledVertices());
+            for (int i = 0; i < result.length; i++) if (result[i] > searchRadius) result[i] = Integer.MAX_VALUE;
+            return result;
+        }
 
-            //look at distances to each neighbour
-            for (Map.Entry<Vertex, Double> a : u.neighbours.entrySet()) {
-                Vertex v = a.getKey(); //the neighbour in this iteration
+        final double[] result = new double[sources.length * targets.length];
+        settledVertices.set(0);
+        if (GlobalVars.numberOfThreads <= 1 || sources.length <= 1) {
+            for (int i = 0; i < sources.length; i++) fillDistances(search, sources[i], targets, result, i * targets.length);
+            return result;
+        }
 
-                double weight = a.getValue();
-                if (u.distOnShortestPath + weight < v.distOnShortestPath) { // shorter path to neighbour found
-                    pq.remove(v);             // remove it from pq
-                    v.distOnShortestPath = u.distOnShortestPath + weight; // update its distance
-                    v.previousNodeOnShortestPath = u;           // update its previous node on the shortest path
-                    pq.add(v);                // add it to the pq again
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < sources.length; i++) {
+            final int row = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    fillDistances(searches.get(), sources[row], targets, result, row * targets.length);
+                    return null;
                 }
-            }
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(GlobalVars.numberOfThreads);
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while finding the shortest paths", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("a shortest path search failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    /**
+     * runs the search from the source until the targets are settled and copies their distances to result[offset..]
+     * (Integer.MAX_VALUE for a target that isn't settled in the search radius)
+     */
+    private void fillDistances(ShortestPathSearch search, int source, int[] targets, double[] result, int offset) {
+        search.run(source, targets, searchRadius);
+        settledVertices.addAndGet(search.getNumberOfSettledVertices());
+        if (GlobalVars.shortestPathTreeCacheSize > 0) keepTree(search.getTree(source, targets));
+        for (int j = 0; j < targets.length; j++)
+            result[offset + j] = search.isSettled(targets[j]) ? search.getDistance(targets[j]) : Integer.MAX_VALUE;
+    }
+
+    private void keepTree(ShortestPathTree tree) {
+        synchronized (pathTrees) {
+            pathTrees.put(tree.getSource(), tree);
         }
     }
 
+    /**
+     * @return vertices (compact graph ids) of the shortest path between two vertices (null if there isn't any path)
+     * a kept tree of the source is used first, then the contraction hierarchy, otherwise the source is searched
+     * to the targets of the shortest path graph and its tree is kept for the next paths
+     */
+    private int[] getPath(int source, int target) {
+        ShortestPathTree tree;
+        synchronized (pathTrees) {
+            tree = pathTrees.get(source);
+        }
+        if (tree != null && tree.contains(target)) return tree.getPath(target);
+        if (contractionHierarchy != null) return contractionHierarchy.getPath(source, target);
+
+        int[] targets = pathTargets != null ? pathTargets : new int[]{target};
+        search.run(source, targets, Double.POSITIVE_INFINITY);
+        tree = search.getTree(source, targets);
+        if (GlobalVars.shortestPathTreeCacheSize > 0) keepTree(tree);
+        if (tree.contains(target)) return tree.getPath(target);
+
+        // the target isn't a customer or the depot
+        search.run(source, new int[]{target}, Double.POSITIVE_INFINITY);
+        return search.getTree(source, new int[]{target}).getPath(target);
+    }
+
+    /**
+     * writes the edges of the shortest path between two vertices (their object ids start from 0)
+     */
+    public void writeShortestPath(String uName, String vName, int route, GeometryWriter writer) {
+        int[] path = getPath(compactGraph.getId(uName), compactGraph.getId(vName));
+        for (int i = 0; path != null && i < path.length - 1; i++)
+            writer.writeEdge(route, i, compactGraph.getVertex(path[i]), compactGraph.getVertex(path[i + 1]));
+    }
+
     /**
      * Prints a path from the source to the specified vertex
      */
@@ -111,9 +251,17 @@ public class Dijkstra {
         }
     }
 
+    /**
+     * @return WKT lines of the edges of the shortest path between two vertices (used for wtk exporting)
+     */
     public String getTheShortestPathEdgesWTKStringBetweenTwoNodes(String u, String v) {
-        this.run(u);
-        return getTheShortestPathEdgesWTKStringBetweenSourceAndTheNode(v);
+        int[] path = getPath(compactGraph.getId(u), compactGraph.getId(v));
+        StringBuilder result = new StringBuilder("");
+        for (int i = 0; path != null && i < path.length - 1; i++) {
+            result.append(graph.getEdgeWTK(compactGraph.getVertex(path[i]).name,
+                    compactGraph.getVertex(path[i + 1]).name)).append("\n");
+        }
+        return result.toString();
     }
 
     /**
@@ -121,23 +269,25 @@ public class Dijkstra {
      **/
     public Graph makeShortestPathGraph() {
         Graph shortestPathGraph = new Graph();
-        for (Vertex u : graph.getVertices()) {
-            if (u.type != VertexType.ORDINARY) {
-                shortestPathGraph.addVertex(new Vertex(u));
+        int[] ids = new int[compactGraph.getNumberOfVertices()]; // compact ids of the vertices that aren't ordinary
+        int numberOfIds = 0;
+        for (int u = 0; u < compactGraph.getNumberOfVertices(); u++) {
+            if (compactGraph.getVertex(u).type != VertexType.ORDINARY) {
+                shortestPathGraph.addVertex(new Vertex(compactGraph.getVertex(u)));
+                ids[numberOfIds++] = u;
             }
         }
 
-        for (Vertex u : graph.getVertices()) {
-            if (u.type == VertexType.ORDINARY) continue;
-
-            this.run(u.name);
-            for (Vertex v : graph.getVertices()) {
-                if (v.type == VertexType.ORDINARY) continue;
-                shortestPathGraph.addEdge(new Edge(u.name, v.name, v.distOnShortestPath));
-
+        ids = Arrays.copyOf(ids, numberOfIds);
+        pathTargets = ids;
+        double[] distances = getDistances(ids, ids);
+        for (int i = 0; i < numberOfIds; i++) {
+            String uName = compactGraph.getVertex(ids[i]).name;
+            for (int j = 0; j < numberOfIds; j++) {
+                shortestPathGraph.addEdge(new Edge(uName, compactGraph.getVertex(ids[j]).name, distances[i * numberOfIds + j]));
             }
         }
 
         return shortestPathGraph;
     }
-}
\ No newline at end of file
+}
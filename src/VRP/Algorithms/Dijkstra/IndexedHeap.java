@@ -0,0 +1,122 @@
+package VRP.Algorithms.Dijkstra;
+
+import java.util.Arrays;
+
+/**
+ * indexed 4-ary min heap of the items 0..capacity-1 by a double key
+ * <p>
+ * every item is in the heap at most once and positions keeps its index in the heap,
+ * so its key can be decreased in O(log n) instead of adding it again. a 4-ary heap is
+ * shallower than a binary heap and the four children are next to each other in the arrays.
+ */
+public class IndexedHeap {
+    private final double[] keys;    // key of the item in every heap index
+    private final int[] items;      // item in every heap index
+    private final int[] positions;  // heap index of every item (-1 if it isn't in the heap)
+    private int size;
+
+    /**
+     * Constructor
+     */
+    public IndexedHeap(int capacity) {
+        this.keys = new double[capacity];
+        this.items = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * @return true if there isn't any item in the heap
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of items in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the item is in the heap
+     */
+    public boolean contains(int item) {
+        return positions[item] >= 0;
+    }
+
+    /**
+     * removes every item (O(size))
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) positions[items[i]] = -1;
+        size = 0;
+    }
+
+    /**
+     * adds the item with the key, or decreases its key if it is in the heap (a larger key is ignored)
+     */
+    public void addOrDecrease(int item, double key) {
+        int i = positions[item];
+        if (i < 0) i = size++;
+        else if (key >= keys[i]) return;
+        siftUp(i, item, key);
+    }
+
+    /**
+     * @return key of the item with the minimum key
+     */
+    public double peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * @return item with the minimum key (it is removed)
+     */
+    public int pop() {
+        int top = items[0];
+        positions[top] = -1;
+        if (--size > 0) siftDown(0, items[size], keys[size]);
+        return top;
+    }
+
+    private void siftUp(int i, int item, double key) {
+        while (i > 0) {
+            int parent = (i - 1) >> 2;
+            if (keys[parent] <= key) break;
+            move(parent, i);
+            i = parent;
+        }
+        set(i, item, key);
+    }
+
+    private void siftDown(int i, int item, double key) {
+        while (true) {
+            int first = (i << 2) + 1;
+            if (first >= size) break;
+
+            // smallest of the (up to) four children
+            int child = first;
+            int last = Math.min(first + 4, size);
+            for (int c = first + 1; c < last; c++) if (keys[c] < keys[child]) child = c;
+
+            if (keys[child] >= key) break;
+            move(child, i);
+            i = child;
+        }
+        set(i, item, key);
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        items[to] = items[from];
+        positions[items[to]] = to;
+    }
+
+    private void set(int i, int item, double key) {
+        keys[i] = key;
+        items[i] = item;
+        positions[item] = i;
+    }
+}
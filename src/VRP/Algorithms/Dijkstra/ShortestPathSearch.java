@@ -0,0 +1,155 @@
+package VRP.Algorithms.Dijkstra;
+
+import VRP.Graph.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * one dijkstra search on a compact graph with its own primitive distances, previous vertices and heap
+ * a search isn't thread safe, every thread uses its own search on the shared (immutable) compact graph
+ * <p>
+ * a search can be given its targets and a radius: it stops when every target is settled or the next vertex
+ * is farther than the radius, so only the vertices near the source are settled. the arrays are marked by
+ * the number of the run instead of being filled for every run, so a run costs only the vertices it reaches.
+ */
+public class ShortestPathSearch {
+    private final CompactGraph graph;
+    private final double[] distances;   // distance of every reached vertex from the source of the last run
+    private final int[] previous;       // previous vertex on the shortest path of every reached vertex (source for itself)
+    private final int[] reachedRun;     // reachedRun[v] == run: v is reached in the last run
+    private final int[] settledRun;     // settledRun[v] == run: v is settled in the last run
+    private final int[] targetRun;      // targetRun[v] == run: v is a target of the last run
+    private final int[] treeRun;        // treeRun[v] == run: v is added to the tree of the last run
+    private final IndexedHeap heap;     // reached vertices that aren't settled by their distance
+    private int run;                    // number of the last run
+    private int settledVertices;        // number of vertices settled in the last run
+
+    /**
+     * Constructor
+     */
+    public ShortestPathSearch(CompactGraph graph) {
+        this.graph = graph;
+        this.distances = new double[graph.getNumberOfVertices()];
+        this.previous = new int[graph.getNumberOfVertices()];
+        this.reachedRun = new int[graph.getNumberOfVertices()];
+        this.settledRun = new int[graph.getNumberOfVertices()];
+        this.targetRun = new int[graph.getNumberOfVertices()];
+        this.treeRun = new int[graph.getNumberOfVertices()];
+        this.heap = new IndexedHeap(graph.getNumberOfVertices());
+    }
+
+    /**
+     * Runs dijkstra from the vertex with the given compact graph id to every vertex O((V + E)logV)
+     */
+    public void run(int source) {
+        run(source, null, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Runs dijkstra from the vertex with the given compact graph id until every target is settled
+     * (every vertex if targets is null) or the next vertex is farther than the radius
+     * the distances of the vertices that aren't settled aren't final
+     */
+    public void run(int source, int[] targets, double radius) {
+        startRun();
+        int remainingTargets = Integer.MAX_VALUE;
+        if (targets != null) {
+            remainingTargets = 0;
+            for (int target : targets) {
+                if (targetRun[target] != run) remainingTargets++;
+                targetRun[target] = run;
+            }
+        }
+
+        reach(source, 0, source); // for start node distance is 0 and previous node is itself
+        heap.clear();
+        heap.addOrDecrease(source, 0);
+
+        while (!heap.isEmpty() && remainingTargets > 0) {
+            if (heap.peekKey() > radius) break;
+            int u = heap.pop(); // vertex with shortest distance (first iteration will return source)
+            double distance = distances[u];
+            settledRun[u] = run;
+            settledVertices++;
+            if (targetRun[u] == run) remainingTargets--;
+
+            //look at distances to each neighbour
+            for (int edge = graph.getEdgesStart(u); edge < graph.getEdgesEnd(u); edge++) {
+                int v = graph.getTarget(edge); //the neighbour in this iteration
+
+                double newDistance = distance + graph.getWeight(edge);
+                if (reachedRun[v] != run || newDistance < distances[v]) { // shorter path to neighbour found
+                    reach(v, newDistance, u); // update its distance and previous node on the shortest path
+                    heap.addOrDecrease(v, newDistance); // add it or decrease its key
+                }
+            }
+        }
+    }
+
+    /**
+     * starts the marks of a new run (the arrays are cleared only when the run number overflows)
+     */
+    private void startRun() {
+        if (run == Integer.MAX_VALUE) {
+            run = 0;
+            Arrays.fill(reachedRun, 0);
+            Arrays.fill(settledRun, 0);
+            Arrays.fill(targetRun, 0);
+            Arrays.fill(treeRun, 0);
+        }
+        run++;
+        settledVertices = 0;
+    }
+
+    private void reach(int v, double distance, int previousVertex) {
+        distances[v] = distance;
+        previous[v] = previousVertex;
+        reachedRun[v] = run;
+    }
+
+    /**
+     * @return distance of the vertex from the source of the last run (Integer.MAX_VALUE if it isn't reached)
+     */
+    public double getDistance(int v) {
+        return reachedRun[v] == run ? distances[v] : Integer.MAX_VALUE; // MAX_VALUE assumed to be infinity
+    }
+
+    /**
+     * @return previous vertex on the shortest path from the source of the last run (-1 if it isn't reached)
+     */
+    public int getPrevious(int v) {
+        return reachedRun[v] == run ? previous[v] : -1;
+    }
+
+    /**
+     * @return true if the distance of the vertex is final in the last run
+     */
+    public boolean isSettled(int v) {
+        return settledRun[v] == run;
+    }
+
+    /**
+     * @return shortest paths of the last run from its source to the settled targets
+     */
+    public ShortestPathTree getTree(int source, int[] targets) {
+        long[] pairs = new long[64];
+        int size = 0;
+        for (int target : targets) {
+            if (!isSettled(target)) continue;
+            // the path is added until it reaches a vertex of the tree (the source is its own previous)
+            for (int v = target; treeRun[v] != run; v = previous[v]) {
+                treeRun[v] = run;
+                if (size == pairs.length) pairs = Arrays.copyOf(pairs, size * 2);
+                pairs[size++] = (long) v << 32 | previous[v];
+            }
+        }
+        return new ShortestPathTree(source, pairs, size);
+    }
+
+    /**
+     * @return number of vertices settled in the last run
+     */
+    public int getNumberOfSettledVertices() {
+        return settledVertices;
+    }
+}
@@ -0,0 +1,54 @@
+package VRP.Algorithms.Dijkstra;
+
+import java.util.Arrays;
+
+/**
+ * shortest paths from a source to some targets (compact graph ids), kept after the search for exporting the routes
+ * only the vertices on the paths are stored: sorted (vertex, previous vertex) pairs found by binary search
+ */
+public class ShortestPathTree {
+    private final int source;
+    private final int[] vertices;   // sorted vertices of the tree
+    private final int[] previous;   // previous vertex of every vertex on its shortest path (source for itself)
+
+    /**
+     * @param pairs (vertex << 32 | previous vertex) of every vertex of the tree (it is sorted)
+     */
+    ShortestPathTree(int source, long[] pairs, int size) {
+        Arrays.sort(pairs, 0, size);
+        this.source = source;
+        this.vertices = new int[size];
+        this.previous = new int[size];
+        for (int i = 0; i < size; i++) {
+            vertices[i] = (int) (pairs[i] >>> 32);
+            previous[i] = (int) pairs[i];
+        }
+    }
+
+    /**
+     * @return source of the paths
+     */
+    public int getSource() {
+        return source;
+    }
+
+    /**
+     * @return true if the tree has the path to the vertex
+     */
+    public boolean contains(int v) {
+        return Arrays.binarySearch(vertices, v) >= 0;
+    }
+
+    /**
+     * @return vertices of the path from the source to the vertex (null if the tree doesn't have it)
+     */
+    public int[] getPath(int v) {
+        if (!contains(v)) return null;
+        int length = 1;
+        for (int u = v; u != source; u = previous[Arrays.binarySearch(vertices, u)]) length++;
+
+        int[] path = new int[length];
+        for (int u = v, i = length - 1; i >= 0; u = previous[Arrays.binarySearch(vertices, u)], i--) path[i] = u;
+        return path;
+    }
+}
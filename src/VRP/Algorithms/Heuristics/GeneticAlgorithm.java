@@ -1,6 +1,7 @@
 package VRP.Algorithms.Heuristics;
 
 import VRP.GlobalVars;
+import VRP.Graph.DistanceMatrix;
 import VRP.Graph.Graph;
 import VRP.Graph.Vertex;
 import VRP.Graph.VertexType;
@@ -15,6 +16,7 @@ import java.util.*;
 public class GeneticAlgorithm {
 
     private Graph graph;
+    private DistanceMatrix distances; // distances of the graph by vertex id
     private int vehicleQty;
     private int customerQty;
     private int populationSize;
@@ -28,6 +30,7 @@ public class GeneticAlgorithm {
      */
     public GeneticAlgorithm(Graph graph, int customerQty, int vehicleQty, int populationSize) {
         this.graph = graph;
+        this.distances = graph.getDistanceMatrix();
         this.vehicleQty = vehicleQty;
         this.customerQty = customerQty;
         this.populationSize = populationSize;
@@ -256,8 +259,9 @@ public class GeneticAlgorithm {
                 Vertex v = graph.getVertexById(tmpList.get(i));
                 if (u.getId() == v.getId()) continue;
 
-                cumulativeTimeTaken += graph.getDistance(u, v);
-                timeElapsedOnThisPath += graph.getDistance(u, v);
+                double distance = distances.get(u.getId(), v.getId());
+                cumulativeTimeTaken += distance;
+                timeElapsedOnThisPath += distance;
 
                 if (timeElapsedOnThisPath > v.dueDate) {
                     cumulativePenaltyTaken += (timeElapsedOnThisPath - v.dueDate) * v.penalty;
@@ -0,0 +1,60 @@
+package VRP.Algorithms.Other;
+
+/**
+ * lower bounds for the number of bins (vehicles) needed to pack items (customer demands)
+ */
+public class BinPacking {
+
+    /**
+     * continuous bound L1 = ceil(sum of sizes / capacity)
+     *
+     * @param sizes    distinct sizes of the items
+     * @param counts   number of items of each size
+     * @param length   number of distinct sizes
+     * @param capacity capacity of the bins
+     * @return L1 lower bound
+     */
+    public static int continuousLowerBound(int[] sizes, int[] counts, int length, int capacity) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) sum += (long) sizes[i] * counts[i];
+        return (int) ((sum + capacity - 1) / capacity);
+    }
+
+    /**
+     * Martello and Toth L2 bound, for every K <= capacity / 2:
+     * N1 = items > capacity - K, N2 = capacity - K >= items > capacity / 2, N3 = capacity / 2 >= items >= K
+     * L(K) = |N1| + |N2| + max(0, ceil((size(N3) - (|N2| * capacity - size(N2))) / capacity))
+     * only K = 0 and K = sizes of the items need to be checked. L2 >= L1.
+     *
+     * @param sizes    distinct sizes of the items in descending order
+     * @param counts   number of items of each size
+     * @param length   number of distinct sizes
+     * @param capacity capacity of the bins
+     * @return L2 lower bound (Integer.MAX_VALUE / 2 if an item is bigger than the capacity)
+     */
+    public static int martelloTothLowerBound(int[] sizes, int[] counts, int length, int capacity) {
+        int best = 0;
+        for (int k = -1; k < length; k++) {
+            int K = k < 0 ? 0 : sizes[k];
+            if (k >= 0 && (counts[k] == 0 || 2 * K > capacity)) continue;
+
+            long n1 = 0, n2 = 0, sizeOfN2 = 0, sizeOfN3 = 0;
+            for (int i = 0; i < length; i++) {
+                int size = sizes[i];
+                if (counts[i] == 0) continue;
+                if (size > capacity) return Integer.MAX_VALUE / 2;
+
+                if (size > capacity - K) n1 += counts[i];
+                else if (2 * size > capacity) {
+                    n2 += counts[i];
+                    sizeOfN2 += (long) size * counts[i];
+                } else if (size >= K) sizeOfN3 += (long) size * counts[i];
+            }
+
+            long freeSpaceOfN2 = n2 * capacity - sizeOfN2;
+            long extra = Math.max(0, (sizeOfN3 - freeSpaceOfN2 + capacity - 1) / capacity);
+            best = (int) Math.max(best, n1 + n2 + extra);
+        }
+        return best;
+    }
+}
@@ -1,9 +1,13 @@
 package VRP;
 
+import VRP.Graph.DistanceMatrix;
 import VRP.Graph.Graph;
+import VRP.Graph.NeighbourTable;
 import VRP.Graph.Vertex;
 import VRP.Graph.VertexType;
 
+import java.util.Arrays;
+
 /**
  * global variables used in branch and bound
  */
@@ -19,19 +23,70 @@ public class GlobalVars {
 
     public static int[] vehicleCapacities;
     public static int[] customerDemands;
+    public static int[] distinctDemands;       // distinct demands of the customers in descending order
+    public static int[] customerDemandIndexes; // index of the customer demand in distinctDemands
+    public static int demandCountBits;         // bits for the count of each demand when all counts fit in a long (0 if they don't)
     public static int[] customerPenaltyCosts;
     public static double[] customerServiceTimes;
     public static double[] nodeDueDates;
 
 
     public static Graph bbGraph; // preprocessed graph
+    public static Vertex[] bbVertices; // vertices of the preprocessed graph indexed by their id
+    public static NeighbourTable bbNeighbours; // neighbours of the preprocessed graph vertices sorted by distance
+    public static DistanceMatrix bbDistances; // distances of the preprocessed graph vertices by id
+
+    // number of branch and bound workers and dijkstra threads (1 -> sequential branch and bound)
+    public static int numberOfThreads = 1;
+
+    // number of branch and bound worker processes (> 1 -> distributed branch and bound, threads are not used)
+    public static int numberOfProcesses = 1;
+
+    // contraction hierarchy file of the road graph (built and saved if it doesn't match, null -> dijkstra searches)
+    public static String contractionHierarchyFilePath = null;
+
+    // maximum distance of the dijkstra searches of the shortest path graph, farther targets are unreachable
+    // (the default of Dijkstra.setSearchRadius)
+    public static double shortestPathSearchRadius = Double.POSITIVE_INFINITY;
+
+    // shortest path trees kept by dijkstra for exporting the routes (LRU by source, 0 -> none)
+    public static int shortestPathTreeCacheSize = 256;
+
+    // branch and bound frontier memory budget (bytes) of the nodes and their ancestors, more nodes are
+    // spilled to the directory (a third of the heap, Frontier.ESTIMATED_NODE_SIZE doesn't count every array)
+    public static long frontierMemoryBudget = Runtime.getRuntime().maxMemory() / 3;
+    public static String frontierSpillDirectory = System.getProperty("java.io.tmpdir");
+
+    // sequential branch and bound checkpoint file (null -> no checkpoints), written every checkpointPeriod ms
+    // and when the search stops, resumeFromCheckpoint goes on from the file if it exists
+    public static String checkpointPath = null;
+    public static long checkpointPeriod = 60_000;
+    public static boolean resumeFromCheckpoint = false;
+
+    // maximum number of states in the branch and bound dominance store (0 -> no dominance pruning)
+    public static int dominanceStoreSize = 1 << 19;
+
+    // make routes in order of their first customer in branch and bound (vehicles are identical)
+    public static boolean useSymmetryBreaking = true;
+
+    // make the children of a branch and bound node one at a time in order of an optimistic bound
+    // (BBNode.startExpansion), an expanding node is counted as branched every time it is polled
+    public static boolean useLazyExpansion = false;
+
+    // branch and bound dives depth first from the best node every diveFrequency branched nodes (0 -> no dives)
+    public static int diveFrequency = 1000;
+
+    // improve the answers of branch and bound with 2-opt, relocate and swap moves (LocalSearch)
+    public static boolean useLocalSearch = true;
+
+    // use the Lagrangian bound (LagrangianBound) for travel time of the remaining routes in branch and bound
+    public static boolean useLagrangianBound = false;
 
     // used for logging
     public static long startTime;
     public static long finishTime;
-    public static long bbPrintTime;
     public static long printTimeStepSize = 500;
-    public static double minimumValue;
+    public static volatile double minimumValue; // best answer so far, read by BBMetricsReporter
 
     // finals
     public static final double INF = 1e9;
@@ -57,13 +112,35 @@ public class GlobalVars {
         GlobalVars.customerDemands = new int[numberOfNodes];
         GlobalVars.customerPenaltyCosts = new int[numberOfNodes];
         GlobalVars.customerServiceTimes = new double[numberOfNodes];
+        GlobalVars.bbVertices = new Vertex[numberOfNodes];
         for (Vertex u : bbGraph.getVertices()) {
+            GlobalVars.bbVertices[u.getId()] = u;
             GlobalVars.nodeDueDates[u.getId()] = u.dueDate;
             GlobalVars.customerDemands[u.getId()] = u.demand;
             GlobalVars.customerPenaltyCosts[u.getId()] = u.penalty;
             GlobalVars.customerServiceTimes[u.getId()] = u.serviceTime;
         }
 
+        // distinct demands in descending order
+        int[] demands = new int[numberOfCustomers];
+        for (int i = 0; i < numberOfCustomers; i++) demands[i] = -customerDemands[i];
+        Arrays.sort(demands);
+        int numberOfDistinctDemands = 0;
+        for (int i = 0; i < numberOfCustomers; i++) {
+            if (i == 0 || demands[i] != demands[i - 1]) demands[numberOfDistinctDemands++] = demands[i];
+        }
+        GlobalVars.distinctDemands = new int[numberOfDistinctDemands];
+        for (int i = 0; i < numberOfDistinctDemands; i++) GlobalVars.distinctDemands[i] = -demands[i];
+        GlobalVars.customerDemandIndexes = new int[numberOfCustomers];
+        for (int i = 0; i < numberOfCustomers; i++) {
+            GlobalVars.customerDemandIndexes[i] = Arrays.binarySearch(demands, 0, numberOfDistinctDemands, -customerDemands[i]);
+        }
+        int bitsPerCount = 32 - Integer.numberOfLeadingZeros(numberOfCustomers);
+        GlobalVars.demandCountBits = bitsPerCount * numberOfDistinctDemands <= 64 ? bitsPerCount : 0;
+
+        GlobalVars.bbNeighbours = new NeighbourTable(bbGraph);
+        GlobalVars.bbDistances = bbGraph.getDistanceMatrix();
+
         // vehicle capacities
         GlobalVars.vehicleCapacities = new int[GlobalVars.numberOfVehicles];
         for (int i = 0; i < GlobalVars.numberOfVehicles; i++) {
@@ -0,0 +1,373 @@
+package VRP.Graph;
+
+import VRP.GlobalVars;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * streaming reader of the node and road attribute tables (csv files exported from the GIS)
+ * <p>
+ * a file is read in large blocks with a FileChannel and rows are tokenized in place in the block
+ * (a quoted field like "LINESTRING(x y, x y)" may have commas and doubled quotes). numbers are parsed
+ * from the bytes, so a road row doesn't make any String: its end points are found by their coordinates
+ * in a primitive hash table and the edge is added to the graph directly.
+ * the first row of a table is its header and skipped.
+ */
+public class AttributeTableReader {
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    // columns of the nodes table
+    private static final int NODE_ID = 0;
+    private static final int NODE_X = 1;
+    private static final int NODE_Y = 2;
+    private static final int NODE_TYPE = 3;
+    private static final int NODE_DEMAND = 4;
+    private static final int NODE_DUE_DATE = 5;
+    private static final int NODE_PENALTY = 6;
+    private static final int NODE_VEHICLES = 7;
+    private static final int NODE_FIXED_COST = 8;
+    private static final int NODE_CAPACITY = 9;
+
+    // columns of the roads table
+    private static final int ROAD_FROM_X = 2;
+    private static final int ROAD_FROM_Y = 3;
+    private static final int ROAD_TO_X = 4;
+    private static final int ROAD_TO_Y = 5;
+    private static final int ROAD_WEIGHT = 6;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private FileChannel channel;
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int position;                 // start of the next row in the block
+    private int limit;                    // end of the read bytes in the block
+    private boolean endOfFile;
+
+    private int numberOfFields;           // fields of the current row
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+
+    private final CoordinateTable coordinates = new CoordinateTable();
+    private long nodeRows;
+    private long roadRows;
+    private long readTime;                // nanoseconds
+
+    /**
+     * adds the vertices of the nodes table to the graph
+     * reading stops at the first row without the vehicle capacity and the later columns (end of the table)
+     */
+    public void readNodes(Graph graph, String nodesFilePath) throws IOException {
+        long startTime = System.nanoTime();
+        open(nodesFilePath);
+        try {
+            nextRow(); // header
+            while (nextRow()) {
+                if (getNumberOfUsedFields() <= NODE_CAPACITY) break;
+
+                Vertex vertex = buildVertex();
+                graph.addVertex(vertex);
+                coordinates.put(parseDouble(NODE_X), parseDouble(NODE_Y), vertex);
+                nodeRows++;
+            }
+        } finally {
+            close();
+            readTime += System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * adds the roads of the roads table to the graph (both directions), its end points must be in the nodes table
+     */
+    public void readRoads(Graph graph, String roadsFilePath) throws IOException {
+        long startTime = System.nanoTime();
+        open(roadsFilePath);
+        try {
+            nextRow(); // header
+            while (nextRow()) {
+                if (numberOfFields <= ROAD_WEIGHT) continue;
+
+                Vertex u = coordinates.get(parseDouble(ROAD_FROM_X), parseDouble(ROAD_FROM_Y));
+                Vertex v = coordinates.get(parseDouble(ROAD_TO_X), parseDouble(ROAD_TO_Y));
+                if (u == null || v == null)
+                    throw new IOException("road " + getString(0) + " has an end point that isn't a node");
+
+                graph.addEdge(u, v, parseDouble(ROAD_WEIGHT));
+                roadRows++;
+            }
+        } finally {
+            close();
+            readTime += System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * @return number of rows read per second
+     */
+    public double getRowsPerSecond() {
+        return readTime == 0 ? 0 : (nodeRows + roadRows) * 1e9 / readTime;
+    }
+
+    /**
+     * @return a string to print the loading statistics
+     */
+    public String getPrintString() {
+        return String.format("Read %d nodes and %d roads in %.2fs (%.0f rows/s)",
+                nodeRows, roadRows, readTime / 1e9, getRowsPerSecond());
+    }
+
+    /**
+     * @return vertex of the current row of the nodes table (sets the global depot name and number of customers)
+     */
+    private Vertex buildVertex() {
+        Vertex vertex = new Vertex();
+        vertex.name = getString(NODE_ID);
+        vertex.coords = getString(NODE_X) + "," + getString(NODE_Y);
+
+        if (fieldEquals(NODE_TYPE, "Depot")) vertex.type = VertexType.DEPOT;
+        else if (fieldEquals(NODE_TYPE, "Customer")) vertex.type = VertexType.CUSTOMER;
+        else vertex.type = VertexType.ORDINARY;
+
+        if (!isEmpty(NODE_DEMAND)) vertex.demand = parseInt(NODE_DEMAND);
+        if (!isEmpty(NODE_DUE_DATE)) vertex.dueDate = parseDouble(NODE_DUE_DATE);
+        if (!isEmpty(NODE_PENALTY)) vertex.penalty = parseInt(NODE_PENALTY);
+        if (!isEmpty(NODE_VEHICLES)) vertex.numberOfVehicles = parseInt(NODE_VEHICLES);
+        if (!isEmpty(NODE_FIXED_COST)) vertex.fixedCost = parseDouble(NODE_FIXED_COST);
+        if (!isEmpty(NODE_CAPACITY)) vertex.capacity = parseInt(NODE_CAPACITY);
+
+        if (vertex.type == VertexType.CUSTOMER) vertex.customerId = GlobalVars.numberOfCustomers++;
+        if (vertex.type == VertexType.DEPOT) GlobalVars.depotName = vertex.name;
+        return vertex;
+    }
+
+    private void open(String path) throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        position = 0;
+        limit = 0;
+        endOfFile = false;
+    }
+
+    private void close() throws IOException {
+        channel.close();
+        channel = null;
+    }
+
+    /**
+     * finds the fields of the next row
+     *
+     * @return false if there isn't any row left
+     */
+    private boolean nextRow() throws IOException {
+        while (true) {
+            if (position == limit && endOfFile) return false;
+            if (tokenizeRow()) return true;
+            readBlock();
+        }
+    }
+
+    /**
+     * tokenizes the row at position if it is complete in the block (the last row of the file may not end with a new line)
+     *
+     * @return false if more bytes are needed
+     */
+    private boolean tokenizeRow() {
+        byte[] bytes = block;
+        int i = position;
+        numberOfFields = 0;
+        while (true) {
+            int start = i;
+            int end;
+            if (i < limit && bytes[i] == '"') {
+                // quoted field, "" is a quote in it
+                start = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (endOfFile) break; // not closed
+                        return false;
+                    }
+                    if (bytes[i] == '"') {
+                        if (i + 1 >= limit && !endOfFile) return false;
+                        if (i + 1 < limit && bytes[i + 1] == '"') i += 2;
+                        else break;
+                    } else i++;
+                }
+                end = i++;
+                while (i < limit && bytes[i] != ',' && bytes[i] != '\n') i++;
+            } else {
+                while (i < limit && bytes[i] != ',' && bytes[i] != '\n') i++;
+                end = i;
+            }
+            if (i >= limit && !endOfFile) return false;
+
+            boolean endOfRow = i >= limit || bytes[i] == '\n';
+            if (endOfRow && end > start && bytes[end - 1] == '\r') end--;
+            addField(start, end);
+            i++;
+            if (endOfRow) {
+                position = Math.min(i, limit);
+                return true;
+            }
+        }
+    }
+
+    private void addField(int start, int end) {
+        if (numberOfFields == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, numberOfFields * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, numberOfFields * 2);
+        }
+        fieldStarts[numberOfFields] = start;
+        fieldEnds[numberOfFields] = end;
+        numberOfFields++;
+    }
+
+    /**
+     * moves the rest of the block to its beginning and reads the next bytes of the file (the block grows for long rows)
+     */
+    private void readBlock() throws IOException {
+        int remaining = limit - position;
+        if (remaining == block.length) block = Arrays.copyOf(block, block.length * 2);
+        else System.arraycopy(block, position, block, 0, remaining);
+        position = 0;
+        limit = remaining;
+
+        ByteBuffer buffer = ByteBuffer.wrap(block, limit, block.length - limit);
+        int read = channel.read(buffer);
+        if (read < 0) endOfFile = true;
+        else limit += read;
+    }
+
+    /**
+     * @return number of fields of the current row without its empty fields at the end
+     */
+    private int getNumberOfUsedFields() {
+        int used = numberOfFields;
+        while (used > 0 && isEmpty(used - 1)) used--;
+        return used;
+    }
+
+    private boolean isEmpty(int field) {
+        return field >= numberOfFields || fieldStarts[field] == fieldEnds[field];
+    }
+
+    private boolean fieldEquals(int field, String text) {
+        if (field >= numberOfFields || fieldEnds[field] - fieldStarts[field] != text.length()) return false;
+        for (int i = 0; i < text.length(); i++)
+            if (block[fieldStarts[field] + i] != text.charAt(i)) return false;
+        return true;
+    }
+
+    private String getString(int field) {
+        if (field >= numberOfFields) return "";
+        return new String(block, fieldStarts[field], fieldEnds[field] - fieldStarts[field], StandardCharsets.UTF_8);
+    }
+
+    private int parseInt(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = block[start] == '-';
+        int i = negative || block[start] == '+' ? start + 1 : start;
+        if (i == end || end - i > 9) return Integer.parseInt(getString(field));
+
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = block[i] - '0';
+            if (digit < 0 || digit > 9) return Integer.parseInt(getString(field));
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return the number of the field, the same double as Double.parseDouble:
+     * a mantissa up to 2^53 and a power of ten up to 22 are exact doubles, so one division or
+     * multiplication is correctly rounded (other numbers are given to Double.parseDouble)
+     */
+    private double parseDouble(int field) {
+        if (isEmpty(field)) throw new NumberFormatException("empty field " + field);
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = block[start] == '-';
+        int i = negative || block[start] == '+' ? start + 1 : start;
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte b = block[i];
+            if (b >= '0' && b <= '9') {
+                if (mantissa > (1L << 53) / 10) return Double.parseDouble(getString(field));
+                mantissa = mantissa * 10 + (b - '0');
+                if (point) exponent--;
+                digits++;
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return Double.parseDouble(getString(field)); // exponent or an invalid number
+            }
+        }
+        if (digits == 0 || mantissa > (1L << 53) || exponent < -22) return Double.parseDouble(getString(field));
+
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * open addressing hash table of the vertices by their coordinates
+     */
+    private static class CoordinateTable {
+        private long[] xs = new long[1024];
+        private long[] ys = new long[1024];
+        private Vertex[] vertices = new Vertex[1024];
+        private int size;
+
+        void put(double x, double y, Vertex vertex) {
+            if (2 * (size + 1) > vertices.length) grow();
+            long xBits = Double.doubleToLongBits(x);
+            long yBits = Double.doubleToLongBits(y);
+            int i = indexOf(xBits, yBits);
+            if (vertices[i] == null) size++;
+            xs[i] = xBits;
+            ys[i] = yBits;
+            vertices[i] = vertex;
+        }
+
+        Vertex get(double x, double y) {
+            return vertices[indexOf(Double.doubleToLongBits(x), Double.doubleToLongBits(y))];
+        }
+
+        /**
+         * @return slot of the coordinates or the empty slot to insert them
+         */
+        private int indexOf(long xBits, long yBits) {
+            int mask = vertices.length - 1;
+            long hash = (xBits * 0x9E3779B97F4A7C15L) ^ (yBits * 0xC2B2AE3D27D4EB4FL);
+            int i = (int) (hash ^ (hash >>> 32)) & mask;
+            while (vertices[i] != null && (xs[i] != xBits || ys[i] != yBits)) i = (i + 1) & mask;
+            return i;
+        }
+
+        private void grow() {
+            long[] oldXs = xs;
+            long[] oldYs = ys;
+            Vertex[] oldVertices = vertices;
+            xs = new long[oldXs.length * 2];
+            ys = new long[oldYs.length * 2];
+            vertices = new Vertex[oldVertices.length * 2];
+            for (int i = 0; i < oldVertices.length; i++) {
+                if (oldVertices[i] == null) continue;
+                int j = indexOf(oldXs[i], oldYs[i]);
+                xs[j] = oldXs[i];
+                ys[j] = oldYs[i];
+                vertices[j] = oldVertices[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package VRP.Graph;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * immutable graph in compressed sparse row format
+ * <p>
+ * vertices have ids 0..n-1 (names are mapped to ids only when it is built), edges of vertex u are
+ * targets[offsets[u]..offsets[u + 1]) with the same weights, so a traversal only reads primitive arrays.
+ */
+public class CompactGraph {
+    private final Vertex[] vertices;           // vertex of every id
+    private final Map<String, Integer> ids;    // vertex name to id
+    private final int[] offsets;               // offsets[u]: index of the first edge of u, offsets[n]: number of edges
+    private final int[] targets;               // end vertex of every edge
+    private final double[] weights;            // weight of every edge
+
+    /**
+     * builds the compact form of a graph (the graph isn't changed)
+     */
+    public CompactGraph(Graph graph) {
+        int numberOfVertices = graph.getGraphSize();
+        this.vertices = new Vertex[numberOfVertices];
+        this.ids = new HashMap<>(numberOfVertices * 2);
+        int numberOfEdges = 0;
+        for (Vertex u : graph.getVertices()) {
+            ids.put(u.name, ids.size());
+            vertices[ids.size() - 1] = u;
+            numberOfEdges += u.neighbours.size();
+        }
+
+        this.offsets = new int[numberOfVertices + 1];
+        this.targets = new int[numberOfEdges];
+        this.weights = new double[numberOfEdges];
+        int edge = 0;
+        for (int u = 0; u < numberOfVertices; u++) {
+            offsets[u] = edge;
+            for (Map.Entry<Vertex, Double> neighbour : vertices[u].neighbours.entrySet()) {
+                targets[edge] = ids.get(neighbour.getKey().name);
+                weights[edge] = neighbour.getValue();
+                edge++;
+            }
+        }
+        offsets[numberOfVertices] = edge;
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int getNumberOfVertices() {
+        return vertices.length;
+    }
+
+    /**
+     * @return number of edges (every direction of a road is an edge)
+     */
+    public int getNumberOfEdges() {
+        return targets.length;
+    }
+
+    /**
+     * @return id of the vertex with the given name (-1 if there is no such vertex)
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return vertex of the given id
+     */
+    public Vertex getVertex(int id) {
+        return vertices[id];
+    }
+
+    /**
+     * @return index of the first edge of the vertex
+     */
+    public int getEdgesStart(int u) {
+        return offsets[u];
+    }
+
+    /**
+     * @return index after the last edge of the vertex
+     */
+    public int getEdgesEnd(int u) {
+        return offsets[u + 1];
+    }
+
+    /**
+     * @return end vertex of the edge
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * @return weight of the edge
+     */
+    public double getWeight(int edge) {
+        return weights[edge];
+    }
+}
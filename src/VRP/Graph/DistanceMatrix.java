@@ -0,0 +1,51 @@
+package VRP.Graph;
+
+import java.util.Map;
+
+/**
+ * immutable distances of a complete (preprocessed) graph in one flat row-major array indexed by Vertex.getId()
+ * the distance of a vertex to itself is Integer.MAX_VALUE / 2 (as the adjacency matrix had it)
+ * only must be built after the global variables are set (uses Vertex.getId())
+ */
+public final class DistanceMatrix {
+    private final int size;
+    private final double[] distances; // distances[u * size + v]: distance from u to v
+
+    /**
+     * builds the matrix of a complete graph (the graph isn't changed)
+     */
+    public DistanceMatrix(Graph graph) {
+        this.size = graph.getGraphSize();
+        this.distances = new double[size * size];
+
+        for (Vertex u : graph.getVertices()) {
+            int base = u.getId() * size;
+            for (Map.Entry<Vertex, Double> neighbour : u.neighbours.entrySet())
+                distances[base + neighbour.getKey().getId()] = neighbour.getValue();
+            distances[base + u.getId()] = Integer.MAX_VALUE / 2.0;
+        }
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return distance from vertex u to vertex v (by id)
+     */
+    public double get(int u, int v) {
+        return distances[u * size + v];
+    }
+
+    /**
+     * @return a copy of the distances as a two dimensional array
+     */
+    public double[][] toArray() {
+        double[][] matrix = new double[size][size];
+        for (int u = 0; u < size; u++) System.arraycopy(distances, u * size, matrix[u], 0, size);
+        return matrix;
+    }
+}
@@ -0,0 +1,71 @@
+package VRP.Graph;
+
+import java.io.PrintWriter;
+
+/**
+ * writes edges of the roads to a stream as they are given
+ * WKT: an "OBJECTID;wrk" csv with a LINESTRING in every row (as QGIS reads it)
+ * GEO_JSON: a FeatureCollection with a LineString feature for every edge (route and id are its properties)
+ */
+public class GeometryWriter {
+    public enum Format {WKT, GEO_JSON}
+
+    private final PrintWriter writer;
+    private final Format format;
+    private boolean firstFeature = true;
+
+    /**
+     * Constructor: writes the header
+     */
+    public GeometryWriter(PrintWriter writer, Format format) {
+        this.writer = writer;
+        this.format = format;
+        if (format == Format.WKT) writer.println("OBJECTID;wrk");
+        else writer.print("{\"type\":\"FeatureCollection\",\"features\":[");
+    }
+
+    /**
+     * writes the edge between two vertices (the route is only written in GeoJSON)
+     */
+    public void writeEdge(int route, int objectId, Vertex u, Vertex v) {
+        if (format == Format.WKT) {
+            writer.print(objectId);
+            writer.print(";LINESTRING(");
+            writeSpacedCoords(u);
+            writer.print(", ");
+            writeSpacedCoords(v);
+            writer.println(")");
+            return;
+        }
+
+        if (!firstFeature) writer.print(',');
+        firstFeature = false;
+        writer.print("\n{\"type\":\"Feature\",\"properties\":{\"route\":");
+        writer.print(route);
+        writer.print(",\"id\":");
+        writer.print(objectId);
+        writer.print("},\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[");
+        writer.print(u.coords);
+        writer.print("],[");
+        writer.print(v.coords);
+        writer.print("]]}}");
+    }
+
+    /**
+     * writes the footer and closes the stream
+     */
+    public void close() {
+        if (format == Format.GEO_JSON) writer.println("\n]}");
+        writer.close();
+    }
+
+    /**
+     * writes "x y" of the comma separated coordinates
+     */
+    private void writeSpacedCoords(Vertex v) {
+        int comma = v.coords.indexOf(',');
+        writer.write(v.coords, 0, comma);
+        writer.print(' ');
+        writer.write(v.coords, comma + 1, v.coords.length() - comma - 1);
+    }
+}
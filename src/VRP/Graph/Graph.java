@@ -5,6 +5,7 @@ import VRP.GlobalVars;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -13,6 +14,7 @@ import java.util.*;
 public class Graph {
     public Map<String, Vertex> adjacencyList; // adjacency list: mapping of vertex names to Vertex objects, built from a set of Edge
     public Map<Integer, Vertex> idToVertexMap; // maps vertex Id to Vertex
+    private DistanceMatrix distanceMatrix; // distances by vertex id (built on the first use)
 
     /**
      * Constructor: Default
@@ -107,41 +109,14 @@ public class Graph {
      */
     public static Graph buildAGraphFromAttributeTables(String nodesFilePath, String roadsFilePath) {
         Graph graph = new Graph();
-        HashMap<String, Vertex> coordsToVertexMap = new HashMap<>();
-
-        // read Nodes
+        AttributeTableReader reader = new AttributeTableReader();
         try {
-            FileInputStream file = new FileInputStream(new File(nodesFilePath));
-            Scanner sc = new Scanner(file);
-            sc.nextLine();
-
-            while (sc.hasNextLine()) {
-                Vertex newVertex = Vertex.buildAVertexFromAttributeTableRow(sc.nextLine());
-                graph.addVertex(newVertex);
-
-                coordsToVertexMap.put(newVertex.coords, newVertex);
-            }
-
-
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
-        }
-
-        // read roads
-        try {
-            FileInputStream file = new FileInputStream(new File(roadsFilePath));
-            Scanner sc = new Scanner(file);
-            sc.nextLine();
-
-            while (sc.hasNextLine()) {
-                Edge edge = Edge.buildEdgeFromAttributeTableRow(sc.nextLine(), coordsToVertexMap);
-                graph.addEdge(edge);
-            }
-        } catch (FileNotFoundException e) {
+            reader.readNodes(graph, nodesFilePath);
+            reader.readRoads(graph, roadsFilePath);
+        } catch (IOException e) {
             e.printStackTrace();
         }
+        System.out.println(reader.getPrintString());
 
         return graph;
     }
@@ -151,6 +126,7 @@ public class Graph {
      */
     public void addVertex(Vertex u) {
         if (!adjacencyList.containsKey(u.name)) adjacencyList.put(u.name, u);
+        distanceMatrix = null;
     }
 
     /**
@@ -159,8 +135,16 @@ public class Graph {
     public void addEdge(Edge e) {
         if (!adjacencyList.containsKey(e.u)) adjacencyList.put(e.u, new Vertex(e.u));
         if (!adjacencyList.containsKey(e.v)) adjacencyList.put(e.v, new Vertex(e.v));
-        adjacencyList.get(e.u).neighbours.put(adjacencyList.get(e.v), e.weight);
-        adjacencyList.get(e.v).neighbours.put(adjacencyList.get(e.u), e.weight);
+        addEdge(adjacencyList.get(e.u), adjacencyList.get(e.v), e.weight);
+    }
+
+    /**
+     * adds an edge between two vertices of the graph (both directions)
+     */
+    public void addEdge(Vertex u, Vertex v, double weight) {
+        u.neighbours.put(v, weight);
+        v.neighbours.put(u, weight);
+        distanceMatrix = null;
     }
 
     /**
@@ -181,17 +165,16 @@ public class Graph {
      * @return adjacencyMatrix of the graph
      */
     public double[][] getTheAdjacencyMatrix() {
-        int numberOfNodes = this.getGraphSize();
-        double[][] adjacencyMatrix = new double[numberOfNodes][numberOfNodes];
-
-        for (Vertex u : adjacencyList.values()) {
-            for (Vertex v : u.neighbours.keySet()) {
-                adjacencyMatrix[u.getId()][v.getId()] = this.getDistance(u, v);
-            }
-            adjacencyMatrix[u.getId()][u.getId()] = Integer.MAX_VALUE / 2.0;
-        }
+        return getDistanceMatrix().toArray();
+    }
 
-        return adjacencyMatrix;
+    /**
+     * @return distances of the (complete) graph by vertex id, shared by every caller
+     * only must be used after the global variables are set (uses Vertex.getId())
+     */
+    public DistanceMatrix getDistanceMatrix() {
+        if (distanceMatrix == null) distanceMatrix = new DistanceMatrix(this);
+        return distanceMatrix;
     }
 
     /**
@@ -0,0 +1,71 @@
+package VRP.Graph;
+
+/**
+ * neighbours of every vertex of the preprocessed graph sorted by their distance to the vertex
+ * stored in flat primitive arrays, row v has the n - 1 other vertices of v
+ * only must be used after the global variables are set (uses Vertex.getId())
+ */
+public class NeighbourTable {
+    private final int rowLength;
+    private final int[] neighbourIds;         // neighbourIds[v * rowLength + i]: i-th nearest vertex to v
+    private final double[] neighbourDistances; // distance from neighbourIds[v * rowLength + i] to v
+
+    /**
+     * builds the table for a complete (preprocessed) graph
+     */
+    public NeighbourTable(Graph graph) {
+        int numberOfNodes = graph.getGraphSize();
+        DistanceMatrix distances = graph.getDistanceMatrix();
+
+        rowLength = numberOfNodes - 1;
+        neighbourIds = new int[numberOfNodes * rowLength];
+        neighbourDistances = new double[numberOfNodes * rowLength];
+
+        for (int v = 0; v < numberOfNodes; v++) {
+            int base = v * rowLength;
+            int size = 0;
+            for (int u = 0; u < numberOfNodes; u++) {
+                if (u == v) continue;
+                double distance = distances.get(u, v);
+
+                // insertion sort, rows are short
+                int i = size++;
+                while (i > 0 && neighbourDistances[base + i - 1] > distance) {
+                    neighbourIds[base + i] = neighbourIds[base + i - 1];
+                    neighbourDistances[base + i] = neighbourDistances[base + i - 1];
+                    i--;
+                }
+                neighbourIds[base + i] = u;
+                neighbourDistances[base + i] = distance;
+            }
+        }
+    }
+
+    /**
+     * @return number of neighbours of every vertex
+     */
+    public int getRowLength() {
+        return rowLength;
+    }
+
+    /**
+     * @return index of the first neighbour of the vertex in the arrays
+     */
+    public int getRowStart(int vertexId) {
+        return vertexId * rowLength;
+    }
+
+    /**
+     * @return id of the neighbour in the given index
+     */
+    public int getNeighbourId(int index) {
+        return neighbourIds[index];
+    }
+
+    /**
+     * @return distance of the neighbour in the given index to its row vertex
+     */
+    public double getNeighbourDistance(int index) {
+        return neighbourDistances[index];
+    }
+}
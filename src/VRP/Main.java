@@ -1,6 +1,10 @@
 package VRP;
 
+import VRP.Algorithms.BranchAndBound.BBSolveLimits;
+import VRP.Algorithms.BranchAndBound.BBSolveResult;
 import VRP.Algorithms.BranchAndBound.BranchAndBound;
+import VRP.Algorithms.BranchAndBound.DistributedBranchAndBound;
+import VRP.Algorithms.BranchAndBound.ParallelBranchAndBound;
 import VRP.Algorithms.Dijkstra.Dijkstra;
 import VRP.Algorithms.Heuristics.GeneticAlgorithm;
 import VRP.Graph.Graph;
@@ -13,15 +17,16 @@ import java.io.FileNotFoundException;
 public class Main {
     public static void main(String[] args) throws FileNotFoundException {
 
-        Graph originalGraph = Graph.buildAGraphFromAttributeTables(
-                "resources/ISFNodes-09-Customers.csv",
-                "resources/ISFRoads.csv"
-        );
+        String nodesFilePath = "resources/ISFNodes-09-Customers.csv";
+        String roadsFilePath = "resources/ISFRoads.csv";
+        Graph originalGraph = Graph.buildAGraphFromAttributeTables(nodesFilePath, roadsFilePath);
 //        Graph originalGraph = Graph.buildAGraphFromCSVFile("resources/input.csv");
 //        originalGraph.printGraph();
 
         // build the preprocessed graph
         Dijkstra dijkstra = new Dijkstra(originalGraph);
+        if (GlobalVars.contractionHierarchyFilePath != null)
+            dijkstra.useContractionHierarchy(GlobalVars.contractionHierarchyFilePath);
         Graph preprocessedGraph = dijkstra.makeShortestPathGraph();
 //        preprocessedGraph.printGraph();
 
@@ -35,9 +40,17 @@ public class Main {
 
         // run the branch and bound algorithm
         GlobalVars.startTime = System.currentTimeMillis();
-        BranchAndBound branchAndBound = new BranchAndBound(preprocessedGraph, geneticAlgorithm.getMinimumCost());
-        branchAndBound.run(GlobalVars.depotName);
+        BranchAndBound branchAndBound;
+        if (GlobalVars.numberOfProcesses > 1)
+            branchAndBound = new DistributedBranchAndBound(preprocessedGraph, geneticAlgorithm.getMinimumCost(),
+                    GlobalVars.numberOfProcesses, nodesFilePath, roadsFilePath);
+        else if (GlobalVars.numberOfThreads > 1)
+            branchAndBound = new ParallelBranchAndBound(preprocessedGraph, geneticAlgorithm.getMinimumCost(), GlobalVars.numberOfThreads);
+        else
+            branchAndBound = new BranchAndBound(preprocessedGraph, geneticAlgorithm.getMinimumCost());
+        BBSolveResult result = branchAndBound.solve(GlobalVars.depotName, BBSolveLimits.NONE, null);
         branchAndBound.printTheAnswer();
+        System.out.println(result.getPrintString());
         GlobalVars.finishTime = System.currentTimeMillis();
 
         // export the result
@@ -290,7 +290,7 @@ public class Model {
                         System.out.print(" "
                                 + u
                                 + " -("
-                                + String.format("%.2f", ppGraph.getDistance(u, v))
+                                + String.format("%.2f", ppGraph.getDistanceMatrix().get(u.getId(), v.getId()))
                                 + ", " + zjkd  + ", " + DD[j] + ", " + pjkd
                                 + ")-> "
                                 + v + ","
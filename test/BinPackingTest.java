@@ -0,0 +1,61 @@
+import VRP.Algorithms.Other.BinPacking;
+
+import java.util.Random;
+
+/**
+ * Tests the bin packing lower bounds against the exact answer of small instances
+ */
+public class BinPackingTest {
+    public static void main(String[] args) {
+        System.out.println(BinPacking.martelloTothLowerBound(new int[]{6, 4, 3}, new int[]{3, 1, 2}, 3, 10)); // 3
+
+        Random random = new Random(0);
+        int invalid = 0, tight = 0, tests = 20000;
+        for (int test = 0; test < tests; test++) {
+            int capacity = 5 + random.nextInt(15);
+            int numberOfItems = 1 + random.nextInt(8);
+            int[] items = new int[numberOfItems];
+            for (int i = 0; i < numberOfItems; i++) items[i] = 1 + random.nextInt(capacity);
+
+            // histogram in descending order
+            int[] sizes = new int[capacity + 1], counts = new int[capacity + 1];
+            int length = 0;
+            for (int size = capacity; size >= 1; size--) {
+                int count = 0;
+                for (int item : items) if (item == size) count++;
+                if (count > 0) {
+                    sizes[length] = size;
+                    counts[length++] = count;
+                }
+            }
+
+            int l2 = BinPacking.martelloTothLowerBound(sizes, counts, length, capacity);
+            int l1 = BinPacking.continuousLowerBound(sizes, counts, length, capacity);
+            int exact = exactNumberOfBins(items, capacity);
+            if (l2 > exact || l1 > l2) invalid++;
+            if (l2 == exact) tight++;
+        }
+        System.out.println("Invalid bounds: " + invalid + ", Tight bounds: " + tight + "/" + tests);
+    }
+
+    /**
+     * @return minimum number of bins by trying every assignment
+     */
+    private static int exactNumberOfBins(int[] items, int capacity) {
+        for (int bins = 1; ; bins++) {
+            if (canPack(items, 0, new int[bins], capacity)) return bins;
+        }
+    }
+
+    private static boolean canPack(int[] items, int i, int[] loads, int capacity) {
+        if (i == items.length) return true;
+        for (int b = 0; b < loads.length; b++) {
+            if (loads[b] + items[i] > capacity) continue;
+            loads[b] += items[i];
+            if (canPack(items, i + 1, loads, capacity)) return true;
+            loads[b] -= items[i];
+            if (loads[b] == 0) break; // empty bins are the same
+        }
+        return false;
+    }
+}
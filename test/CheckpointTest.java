@@ -0,0 +1,52 @@
+import VRP.Algorithms.BranchAndBound.BBSolveLimits;
+import VRP.Algorithms.BranchAndBound.BBSolveResult;
+import VRP.Algorithms.BranchAndBound.BranchAndBound;
+import VRP.Algorithms.Dijkstra.Dijkstra;
+import VRP.GlobalVars;
+import VRP.Graph.Graph;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests that a lazy branch and bound search stopped by a node limit and resumed from
+ * its checkpoint (with a small frontier budget, so segments are spilled) finds the optimum
+ */
+public class CheckpointTest {
+    private static Graph preprocessedGraph;
+
+    public static void main(String[] args) throws IOException {
+        Graph graph = Graph.buildAGraphFromAttributeTables("resources/ISFNodes-10-Customers.csv", "resources/ISFRoads.csv");
+        preprocessedGraph = new Dijkstra(graph).makeShortestPathGraph();
+        GlobalVars.setTheGlobalVariables(preprocessedGraph);
+        GlobalVars.useLazyExpansion = true;
+        GlobalVars.frontierMemoryBudget = 200_000;
+        GlobalVars.diveFrequency = 0; // the answer is found by the search, so a lost node can change it
+        GlobalVars.useLocalSearch = false;
+
+        double optimum = solve(BBSolveLimits.NONE).cost;
+        System.out.printf("Uninterrupted: %.6f%n", optimum);
+
+        File file = File.createTempFile("checkpoint", ".bin");
+        GlobalVars.checkpointPath = file.getPath();
+        int mismatches = 0;
+        for (long nodeLimit = 20; nodeLimit <= 4000; nodeLimit += 20) {
+            file.delete();
+            GlobalVars.resumeFromCheckpoint = false;
+            solve(new BBSolveLimits(Long.MAX_VALUE, nodeLimit, 0));
+            GlobalVars.resumeFromCheckpoint = true;
+            double resumed = solve(BBSolveLimits.NONE).cost;
+            if (resumed != optimum) {
+                System.out.printf("Stopped after %d nodes and resumed: %.6f%n", nodeLimit, resumed);
+                mismatches++;
+            }
+        }
+        file.delete();
+        System.out.println("Mismatches: " + mismatches);
+    }
+
+    private static BBSolveResult solve(BBSolveLimits limits) {
+        BranchAndBound branchAndBound = new BranchAndBound(preprocessedGraph, 1000);
+        return branchAndBound.solve(GlobalVars.depotName, limits, null);
+    }
+}
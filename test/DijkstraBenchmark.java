@@ -0,0 +1,95 @@
+import VRP.Algorithms.Dijkstra.Dijkstra;
+import VRP.Graph.Graph;
+import VRP.Graph.Vertex;
+import VRP.Graph.VertexType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * times dijkstra on the Isfahan road network and on random weighted grids
+ * args: number of vertices of the grids (default 100000)
+ */
+public class DijkstraBenchmark {
+    public static void main(String[] args) {
+        // Isfahan: one run from every customer and the depot
+        Graph roads = Graph.buildAGraphFromAttributeTables("resources/ISFNodes-15-Customers.csv", "resources/ISFRoads.csv");
+        List<String> sources = new ArrayList<>();
+        for (Vertex v : roads.getVertices()) if (v.type != VertexType.ORDINARY) sources.add(v.name);
+        time("Isfahan", roads, sources);
+
+        // shortest path graph: the searches stop when the customers and the depot are settled
+        Dijkstra dijkstra = new Dijkstra(roads);
+        dijkstra.makeShortestPathGraph();
+        long startTime = System.nanoTime();
+        dijkstra.makeShortestPathGraph();
+        System.out.printf("Isfahan shortest path graph: %.2f ms, %d of %d vertices settled per search%n",
+                (System.nanoTime() - startTime) / 1e6, dijkstra.getNumberOfSettledVertices() / sources.size(),
+                roads.getGraphSize());
+
+        // the same with a contraction hierarchy (built in a temporary file)
+        try {
+            File file = File.createTempFile("isfahan", ".ch");
+            file.delete();
+            startTime = System.nanoTime();
+            dijkstra.useContractionHierarchy(file.getPath());
+            System.out.printf("Isfahan contraction hierarchy: built in %.2f ms%n", (System.nanoTime() - startTime) / 1e6);
+            dijkstra.makeShortestPathGraph();
+            startTime = System.nanoTime();
+            dijkstra.makeShortestPathGraph();
+            System.out.printf("Isfahan shortest path graph with the hierarchy: %.2f ms, %d vertices settled per search%n",
+                    (System.nanoTime() - startTime) / 1e6, dijkstra.getNumberOfSettledVertices() / (2 * sources.size()));
+            file.delete();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        int[] sizes = args.length == 0 ? new int[]{100000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        for (int size : sizes) {
+            int side = (int) Math.ceil(Math.sqrt(size));
+            Graph grid = makeGrid(side, new Random(0));
+            List<String> gridSources = new ArrayList<>();
+            Random random = new Random(1);
+            for (int i = 0; i < 5; i++) gridSources.add(random.nextInt(side) + "," + random.nextInt(side));
+            time(side + "x" + side + " grid", grid, gridSources);
+        }
+    }
+
+    /**
+     * prints the average time of a run from the sources (after a warm up round)
+     */
+    private static void time(String name, Graph graph, List<String> sources) {
+        Dijkstra dijkstra = new Dijkstra(graph);
+        for (String source : sources) dijkstra.run(source);
+
+        long startTime = System.nanoTime();
+        for (String source : sources) dijkstra.run(source);
+        double milliseconds = (System.nanoTime() - startTime) / 1e6 / sources.size();
+        System.out.printf("%s: %d vertices, %.2f ms per run%n", name, graph.getGraphSize(), milliseconds);
+    }
+
+    /**
+     * @return a side x side grid with random weights in [1, 10)
+     */
+    private static Graph makeGrid(int side, Random random) {
+        Graph graph = new Graph();
+        Vertex[][] vertices = new Vertex[side][side];
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                vertices[r][c] = new Vertex(r + "," + c, VertexType.ORDINARY);
+                graph.addVertex(vertices[r][c]);
+            }
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (r + 1 < side) graph.addEdge(vertices[r][c], vertices[r + 1][c], 1 + 9 * random.nextDouble());
+                if (c + 1 < side) graph.addEdge(vertices[r][c], vertices[r][c + 1], 1 + 9 * random.nextDouble());
+            }
+        }
+        return graph;
+    }
+}